@@ -0,0 +1,63 @@
+package uk.ac.bris.cs.fxkit;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Circle;
+
+/**
+ * Benchmarks binding a small controller through {@link FXMLTemplate} against a
+ * plain {@link FXMLLoader}, as {@link Controller#bind(String, Controller)} did
+ * before templates <br>
+ * The document only holds a layout and a shape, which can be built off the
+ * JavaFX thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FXMLBenchmark {
+
+	private static final String PATH = "layout/MoveHint.fxml";
+
+	public static class Hint implements Controller {
+
+		@FXML private Pane root;
+		@FXML private Circle piece;
+
+		@Override
+		public Parent root() {
+			return root;
+		}
+	}
+
+	@Benchmark
+	public Hint template() {
+		Hint hint = new Hint();
+		FXMLTemplate.of(PATH).instantiate(hint, null);
+		return hint;
+	}
+
+	@Benchmark
+	public Hint loader() throws IOException {
+		Hint hint = new Hint();
+		FXMLLoader loader = new FXMLLoader(getClass().getClassLoader().getResource(PATH));
+		loader.setController(hint);
+		loader.load();
+		return hint;
+	}
+
+}
@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.io.ByteStreams;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+
+/**
+ * Benchmarks reading {@code graph.txt} and walking the edges of the standard
+ * map
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+
+	private byte[] bytes;
+	private List<String> lines;
+	private UndirectedGraph<Integer, Transport> undirected;
+	private ImmutableGraph<Integer, Transport> immutable;
+	private List<Node<Integer>> nodes;
+
+	@Setup
+	public void setup() throws IOException {
+		try (InputStream stream = getClass().getClassLoader().getResourceAsStream("graph.txt")) {
+			if (stream == null) throw new IOException("Resource graph.txt not found");
+			bytes = ByteStreams.toByteArray(stream);
+		}
+		lines = Arrays.asList(new String(bytes, StandardCharsets.UTF_8).split("\r?\n"));
+		immutable = ScotlandYardGraphReader.fromLines(lines);
+		undirected = new UndirectedGraph<>(immutable);
+		nodes = undirected.getNodes();
+	}
+
+	@Benchmark
+	public ImmutableGraph<Integer, Transport> fromLines() {
+		return ScotlandYardGraphReader.fromLines(lines);
+	}
+
+	@Benchmark
+	public ImmutableGraph<Integer, Transport> fromStream() throws IOException {
+		return ScotlandYardGraphReader.fromStream(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * {@code getEdgesFrom} for every node of the map
+	 */
+	@Benchmark
+	public void edgesFromUndirected(Blackhole blackhole) {
+		edgesFrom(undirected, blackhole);
+	}
+
+	/**
+	 * As {@link #edgesFromUndirected(Blackhole)}, through the wrapper the
+	 * model hands out
+	 */
+	@Benchmark
+	public void edgesFromImmutable(Blackhole blackhole) {
+		edgesFrom(immutable, blackhole);
+	}
+
+	private void edgesFrom(Graph<Integer, Transport> graph, Blackhole blackhole) {
+		for (Node<Integer> node : nodes) {
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+				blackhole.consume(edge.destination());
+		}
+	}
+
+}
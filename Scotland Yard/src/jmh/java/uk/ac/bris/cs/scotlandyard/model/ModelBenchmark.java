@@ -0,0 +1,228 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+
+/**
+ * Benchmarks {@link ScotlandYardModel} on the standard map with Mr X and five
+ * detectives <br>
+ * Move generation is measured the way players see it: {@code startRotate()}
+ * hands the available moves to a player that keeps them and never answers, so
+ * the game stays where it is. That includes the game over check, which is
+ * measured on its own as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+	private static final Colour[] DETECTIVES = { Colour.Blue, Colour.Green, Colour.Red,
+			Colour.White, Colour.Yellow };
+
+	/**
+	 * A game on its first rotation with Mr X to move, and a copy with Mr X's
+	 * first move made so that the first detective is to move
+	 */
+	@State(Scope.Thread)
+	public static class Positions {
+
+		ImmutableGraph<Integer, Transport> graph;
+		final Holding holding = new Holding();
+		ScotlandYardModel mrXToMove;
+		ScotlandYardModel detectiveToMove;
+		Move mrXMove;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			graph = StandardGame.standardGraph();
+			mrXToMove = newGame(graph, 42, holding);
+			detectiveToMove = newGame(graph, 42, holding);
+			mrXToMove.startRotate();
+			mrXMove = holding.moves.iterator().next();
+			// the first detective is asked next and holds on to its moves
+			detectiveToMove.accept(mrXMove);
+		}
+	}
+
+	/**
+	 * A fresh game for every invocation, for benchmarks that change the game
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+
+		ImmutableGraph<Integer, Transport> graph;
+		ScotlandYardModel game;
+		Move mrXMove;
+
+		@Setup(Level.Trial)
+		public void setupTrial() throws IOException {
+			graph = StandardGame.standardGraph();
+			Holding holding = new Holding();
+			newGame(graph, 42, holding).startRotate();
+			mrXMove = holding.moves.iterator().next();
+		}
+
+		@Setup(Level.Invocation)
+		public void setupInvocation() {
+			game = newGame(graph, 42, new Holding());
+		}
+	}
+
+	/**
+	 * Random players answering immediately, one random source per thread
+	 */
+	@State(Scope.Thread)
+	public static class Playouts {
+
+		ImmutableGraph<Integer, Transport> graph;
+		final SplittableRandom random = new SplittableRandom(42);
+		int seed;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			graph = StandardGame.standardGraph();
+		}
+	}
+
+	@Benchmark
+	public Set<Move> availableMovesMrX(Positions positions) {
+		positions.mrXToMove.startRotate();
+		return positions.holding.moves;
+	}
+
+	@Benchmark
+	public Set<Move> availableMovesDetective(Positions positions) {
+		positions.detectiveToMove.startRotate();
+		return positions.holding.moves;
+	}
+
+	@Benchmark
+	public boolean isGameOverMrXToMove(Positions positions) {
+		return positions.mrXToMove.isGameOver();
+	}
+
+	@Benchmark
+	public boolean isGameOverDetectiveToMove(Positions positions) {
+		return positions.detectiveToMove.isGameOver();
+	}
+
+	/**
+	 * One {@code accept()} of Mr X's move, including asking the first
+	 * detective for its move; the game is created outside the measurement
+	 */
+	@Benchmark
+	public int accept(Fresh fresh) {
+		fresh.game.accept(fresh.mrXMove);
+		return fresh.game.getCurrentRound();
+	}
+
+	/**
+	 * A whole game between random players, from creation to game over
+	 */
+	@Benchmark
+	public void randomPlayout(Playouts playouts, Blackhole blackhole) {
+		RandomPlayer player = new RandomPlayer(playouts.random.split());
+		ScotlandYardModel game = newGame(playouts.graph, playouts.seed++, player);
+		while (!game.isGameOver())
+			game.startRotate();
+		blackhole.consume(game.getWinningPlayers());
+		blackhole.consume(game.getCurrentRound());
+	}
+
+	static ScotlandYardModel newGame(ImmutableGraph<Integer, Transport> graph, int seed,
+			Player player) {
+		List<PlayerConfiguration> players = players(seed, player);
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph, players.get(0), players.get(1),
+				players.subList(2, players.size()).toArray(new PlayerConfiguration[0]));
+	}
+
+	/**
+	 * @return Mr X followed by the detectives, all played by the player
+	 */
+	static List<PlayerConfiguration> players(int seed, Player player) {
+		List<Integer> locations = StandardGame.generateDetectiveLocations(seed,
+				DETECTIVES.length);
+		// Mr X and detective start locations never overlap
+		List<PlayerConfiguration> players = new ArrayList<>();
+		players.add(new PlayerConfiguration.Builder(Colour.Black).using(player)
+				.with(tickets(4, 3, 3, 2, 5)).at(StandardGame.generateMrXLocation(seed))
+				.build());
+		for (int i = 0; i < DETECTIVES.length; i++) {
+			players.add(new PlayerConfiguration.Builder(DETECTIVES[i]).using(player)
+					.with(tickets(11, 8, 4, 0, 0)).at(locations.get(i)).build());
+		}
+		return players;
+	}
+
+	private static Map<Ticket, Integer> tickets(int taxi, int bus, int underground, int x2,
+			int secret) {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		tickets.put(Ticket.Taxi, taxi);
+		tickets.put(Ticket.Bus, bus);
+		tickets.put(Ticket.Underground, underground);
+		tickets.put(Ticket.Double, x2);
+		tickets.put(Ticket.Secret, secret);
+		return tickets;
+	}
+
+	/**
+	 * Keeps the moves it is given and never answers
+	 */
+	static final class Holding implements Player {
+
+		Set<Move> moves;
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			this.moves = moves;
+		}
+	}
+
+	/**
+	 * Answers immediately with a uniformly random move
+	 */
+	static final class RandomPlayer implements Player {
+
+		private final SplittableRandom random;
+
+		RandomPlayer(SplittableRandom random) {
+			this.random = random;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			Iterator<Move> iterator = moves.iterator();
+			for (int i = random.nextInt(moves.size()); i > 0; i--)
+				iterator.next();
+			callback.accept(iterator.next());
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Move generation throughput of {@link ScotlandYardModel} measured with
+ * {@link Perft} from the start of the standard game; divide the leaves of
+ * the depth by the time per count for moves per second
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerftBenchmark {
+
+	@Param({ "2", "3" })
+	public int depth;
+
+	private Perft perft;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() throws IOException {
+		List<PlayerConfiguration> players = ModelBenchmark.players(42,
+				new ModelBenchmark.Holding());
+		perft = Perft.of(new ModelFactories.ImperativeModelFactory(), StandardGame.ROUNDS,
+				StandardGame.standardGraph(), players.get(0),
+				players.subList(1, players.size()).toArray(new PlayerConfiguration[0]));
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Perft.Counts singleThreaded() {
+		return perft.count(depth);
+	}
+
+	@Benchmark
+	public Perft.Counts forkJoin() {
+		return perft.count(depth, pool);
+	}
+
+}
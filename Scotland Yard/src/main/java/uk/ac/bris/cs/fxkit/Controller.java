@@ -1,11 +1,8 @@
 package uk.ac.bris.cs.fxkit;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.ResourceBundle;
 
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 
@@ -41,31 +38,19 @@ public interface Controller extends Initializable {
 
 	/**
 	 * Loads the main view and inject all fields annotated with {@link javafx.fxml.FXML}
+	 * <br>
+	 * The FXML file is parsed from a cached {@link FXMLTemplate}, so binding
+	 * many controllers of the same class only reads the file once
 	 *
 	 * @param fxmlPath the FXML file path
 	 * @param cssPath optional CSS file, will be loaded after the view is injected
 	 * @param controller the controller object
 	 */
 	static void bind(String fxmlPath, String cssPath, Controller controller) {
-		FXMLLoader loader = new FXMLLoader();
-		if (Default.RESOURCE_BUNDLE != null)
-			loader.setResources(Default.RESOURCE_BUNDLE);
-		loader.setRoot(controller.root());
-		loader.setController(controller);
-
-		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-		try {
-			InputStream stream = classLoader
-					                     .getResourceAsStream(fxmlPath);
-			if (stream == null)
-				throw new IllegalArgumentException("Unable to find " + fxmlPath);
-			loader.load(stream);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		FXMLTemplate.of(fxmlPath).instantiate(controller, Default.RESOURCE_BUNDLE);
 		cssPath = cssPath == null ? Default.cssPath : cssPath;
 		if (cssPath != null && controller.root() != null) {
-			controller.root().getStylesheets().add(toExternalString(classLoader, cssPath));
+			controller.root().getStylesheets().add(FXMLTemplate.stylesheet(cssPath));
 		}
 	}
 
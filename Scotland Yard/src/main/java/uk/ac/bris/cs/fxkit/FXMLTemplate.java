@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.fxkit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.io.ByteStreams;
+
+import javafx.fxml.FXMLLoader;
+
+/**
+ * An FXML file that {@link Controller}s are instantiated from. <br>
+ * The document is read from the classpath once and kept in memory, and every
+ * instantiation shares one class loader that remembers which classes FXML
+ * imports resolve to, including the misses. Resolving the wildcard imports is
+ * the bulk of the time {@link FXMLLoader} spends on small documents, so
+ * binding the same controller again mostly costs building the nodes. <br>
+ * Templates are cached per path for the lifetime of the application. This
+ * class is thread safe.
+ */
+public final class FXMLTemplate {
+
+	private static final Map<String, FXMLTemplate> TEMPLATES = new ConcurrentHashMap<>();
+	private static final Map<String, String> STYLESHEETS = new ConcurrentHashMap<>();
+	private static volatile CachingClassLoader classLoader;
+
+	private final String path;
+	private final byte[] document;
+
+	private FXMLTemplate(String path, byte[] document) {
+		this.path = path;
+		this.document = document;
+	}
+
+	/**
+	 * @param path the FXML file path on the classpath
+	 * @return the template for the path, read on first use
+	 * @throws IllegalArgumentException if the file does not exist
+	 */
+	public static FXMLTemplate of(String path) {
+		FXMLTemplate template = TEMPLATES.get(path);
+		if (template != null) return template;
+		return TEMPLATES.computeIfAbsent(path, p -> new FXMLTemplate(p, read(p)));
+	}
+
+	private static byte[] read(String path) {
+		try (InputStream stream = classLoader().getResourceAsStream(path)) {
+			if (stream == null) throw new IllegalArgumentException("Unable to find " + path);
+			return ByteStreams.toByteArray(stream);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param path the CSS file path on the classpath
+	 * @return the external form of the stylesheet URL, looked up once
+	 */
+	static String stylesheet(String path) {
+		return STYLESHEETS.computeIfAbsent(path, p -> {
+			URL url = classLoader().getResource(p);
+			if (url == null) throw new IllegalArgumentException("Unable to find " + p);
+			return url.toExternalForm();
+		});
+	}
+
+	/**
+	 * Builds a new instance of the template, injecting the controller
+	 *
+	 * @param controller the controller object
+	 * @param resources optional resource bundle
+	 */
+	public void instantiate(Controller controller, ResourceBundle resources) {
+		FXMLLoader loader = new FXMLLoader();
+		loader.setClassLoader(classLoader());
+		if (resources != null) loader.setResources(resources);
+		loader.setRoot(controller.root());
+		loader.setController(controller);
+		try {
+			loader.load(new ByteArrayInputStream(document));
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to load " + path, e);
+		}
+	}
+
+	public String path() {
+		return path;
+	}
+
+	private static CachingClassLoader classLoader() {
+		ClassLoader context = Thread.currentThread().getContextClassLoader();
+		if (context == null) context = FXMLTemplate.class.getClassLoader();
+		CachingClassLoader loader = classLoader;
+		if (loader == null || loader.getParent() != context) {
+			loader = new CachingClassLoader(context);
+			classLoader = loader;
+		}
+		return loader;
+	}
+
+	/**
+	 * Remembers the result of every class lookup, FXML tries each import
+	 * package in turn and most of them fail
+	 */
+	private static final class CachingClassLoader extends ClassLoader {
+
+		private final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+		CachingClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			Optional<Class<?>> type = classes.get(name);
+			if (type == null) {
+				try {
+					type = Optional.of(getParent().loadClass(name));
+				} catch (ClassNotFoundException e) {
+					type = Optional.empty();
+				}
+				classes.put(name, type);
+			}
+			if (!type.isPresent()) throw new ClassNotFoundException(name);
+			return type.get();
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+package uk.ac.bris.cs.fxkit.pane;
+
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.layout.Pane;
+import javafx.scene.transform.Transform;
+
+/**
+ * Displays a large image as a pyramid of tiles. <br>
+ * Level 0 holds the image at full resolution, every further level halves it.
+ * Only the tiles inside the visible part of the scene are shown, taken from
+ * the level matching the current scale(e.g. from a {@link GesturePane}), so
+ * the number of tiles on screen stays about the same at any zoom. Tiles are
+ * cut from the image when first needed and kept in a bounded LRU cache. <br>
+ * The pane always has the size of the image at full resolution.
+ */
+public class TiledImagePane extends Pane {
+
+	/**
+	 * Default tile edge length in pixels
+	 */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	/**
+	 * Default maximum number of cached tiles
+	 */
+	public static final int DEFAULT_CACHED_TILES = 128;
+
+	private static final WritablePixelFormat<IntBuffer> ARGB = PixelFormat.getIntArgbInstance();
+
+	private final ObjectProperty<Image> image = new SimpleObjectProperty<>(this, "image");
+	private final int tileSize;
+	private final Cache<Long, Image> tiles;
+	private final Map<Long, ImageView> shown = new HashMap<>();
+	private final InvalidationListener invalidate = o -> requestLayout();
+	private int levels;
+
+	public TiledImagePane() {
+		this(DEFAULT_TILE_SIZE, DEFAULT_CACHED_TILES);
+	}
+
+	/**
+	 * @param tileSize tile edge length in pixels, must be &gt; 0
+	 * @param cachedTiles maximum number of cached tiles, must be &gt; 0
+	 */
+	public TiledImagePane(int tileSize, int cachedTiles) {
+		if (tileSize < 1) throw new IllegalArgumentException("tileSize must be > 0");
+		if (cachedTiles < 1) throw new IllegalArgumentException("cachedTiles must be > 0");
+		this.tileSize = tileSize;
+		this.tiles = CacheBuilder.newBuilder().maximumSize(cachedTiles).build();
+		image.addListener((o, p, n) -> {
+			tiles.invalidateAll();
+			getChildren().clear();
+			shown.clear();
+			levels = n == null ? 0 : levelsFor(n.getWidth(), n.getHeight(), tileSize);
+			double width = n == null ? 0 : n.getWidth();
+			double height = n == null ? 0 : n.getHeight();
+			setMinSize(width, height);
+			setPrefSize(width, height);
+			setMaxSize(width, height);
+			requestLayout();
+		});
+		localToSceneTransformProperty().addListener(invalidate);
+		sceneProperty().addListener((o, p, n) -> {
+			if (p != null) {
+				p.widthProperty().removeListener(invalidate);
+				p.heightProperty().removeListener(invalidate);
+			}
+			if (n != null) {
+				n.widthProperty().addListener(invalidate);
+				n.heightProperty().addListener(invalidate);
+			}
+		});
+	}
+
+	public ObjectProperty<Image> imageProperty() {
+		return image;
+	}
+
+	public Image getImage() {
+		return image.get();
+	}
+
+	public void setImage(Image image) {
+		this.image.set(image);
+	}
+
+	/**
+	 * @return number of levels of the pyramid, 0 without an image
+	 */
+	public int levels() {
+		return levels;
+	}
+
+	/**
+	 * @return number of tiles in the cache
+	 */
+	public long cachedTiles() {
+		return tiles.size();
+	}
+
+	static int levelsFor(double width, double height, int tileSize) {
+		int levels = 1;
+		double edge = Math.max(width, height);
+		while (edge > tileSize) {
+			edge /= 2;
+			levels++;
+		}
+		return levels;
+	}
+
+	@Override
+	protected void layoutChildren() {
+		Image image = getImage();
+		Scene scene = getScene();
+		if (image == null || scene == null) return;
+		Transform transform = getLocalToSceneTransform();
+		double scale = Math.hypot(transform.getMxx(), transform.getMyx());
+		int level = 0;
+		while (level + 1 < levels && scale * (1 << (level + 1)) <= 1)
+			level++;
+		int span = tileSize << level;
+
+		// the part of the scene we cover, in image pixels
+		Bounds visible = sceneToLocal(new BoundingBox(0, 0, scene.getWidth(),
+				scene.getHeight()));
+		if (visible == null) return;
+		int fromCol = clamp((int) Math.floor(visible.getMinX() / span), image.getWidth(), span);
+		int toCol = clamp((int) Math.floor(visible.getMaxX() / span), image.getWidth(), span);
+		int fromRow = clamp((int) Math.floor(visible.getMinY() / span), image.getHeight(), span);
+		int toRow = clamp((int) Math.floor(visible.getMaxY() / span), image.getHeight(), span);
+
+		Map<Long, ImageView> next = new HashMap<>();
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int col = fromCol; col <= toCol; col++) {
+				long key = key(level, col, row);
+				ImageView view = shown.remove(key);
+				if (view == null) {
+					view = new ImageView(tile(image, level, col, row));
+					view.setManaged(false);
+					view.setSmooth(true);
+					view.relocate(col * span, row * span);
+					view.setFitWidth(view.getImage().getWidth() * (1 << level));
+					view.setFitHeight(view.getImage().getHeight() * (1 << level));
+					getChildren().add(view);
+				}
+				next.put(key, view);
+			}
+		}
+		for (Iterator<Entry<Long, ImageView>> it = shown.entrySet().iterator(); it.hasNext();) {
+			getChildren().remove(it.next().getValue());
+			it.remove();
+		}
+		shown.putAll(next);
+	}
+
+	private static int clamp(int index, double length, int span) {
+		int last = Math.max(0, (int) Math.ceil(length / span) - 1);
+		return Math.max(0, Math.min(last, index));
+	}
+
+	private static long key(int level, int col, int row) {
+		return (long) level << 48 | (long) col << 24 | row;
+	}
+
+	private Image tile(Image image, int level, int col, int row) {
+		long key = key(level, col, row);
+		Image tile = tiles.getIfPresent(key);
+		if (tile == null) {
+			tile = cut(image, level, col, row);
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	/**
+	 * Cuts a tile out of the image, averaging four samples per pixel on the
+	 * scaled down levels
+	 */
+	private WritableImage cut(Image image, int level, int col, int row) {
+		PixelReader reader = image.getPixelReader();
+		int step = 1 << level;
+		int x0 = col * tileSize * step;
+		int y0 = row * tileSize * step;
+		int imageWidth = (int) image.getWidth();
+		int imageHeight = (int) image.getHeight();
+		int width = Math.max(1, Math.min(tileSize, (imageWidth - x0 + step - 1) / step));
+		int height = Math.max(1, Math.min(tileSize, (imageHeight - y0 + step - 1) / step));
+		int[] pixels = new int[width * height];
+		if (step == 1) {
+			reader.getPixels(x0, y0, width, height, ARGB, pixels, 0, width);
+		} else {
+			int half = step / 2;
+			int sourceWidth = Math.min(width * step, imageWidth - x0);
+			int[] top = new int[sourceWidth];
+			int[] bottom = new int[sourceWidth];
+			for (int y = 0; y < height; y++) {
+				int sy = y0 + y * step;
+				reader.getPixels(x0, sy, sourceWidth, 1, ARGB, top, 0, sourceWidth);
+				reader.getPixels(x0, Math.min(sy + half, imageHeight - 1), sourceWidth, 1, ARGB,
+						bottom, 0, sourceWidth);
+				for (int x = 0; x < width; x++) {
+					int a = x * step;
+					int b = Math.min(a + half, sourceWidth - 1);
+					pixels[y * width + x] = average(top[a], top[b], bottom[a], bottom[b]);
+				}
+			}
+		}
+		WritableImage tile = new WritableImage(width, height);
+		tile.getPixelWriter().setPixels(0, 0, width, height, ARGB, pixels, 0, width);
+		return tile;
+	}
+
+	private static int average(int a, int b, int c, int d) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int sum = (a >>> shift & 0xFF) + (b >>> shift & 0xFF) + (c >>> shift & 0xFF)
+					+ (d >>> shift & 0xFF);
+			result |= (sum + 2) / 4 << shift;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,252 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.nio.LongBuffer;
+import java.util.Objects;
+
+/**
+ * A square matrix of booleans packed 64 per {@code long}, each row starting on
+ * a word boundary so that rows can be combined a word at a time. See
+ * {@link PrimitiveSquareMatrix} for storage and threading.
+ */
+public final class BitMatrix extends PrimitiveSquareMatrix<Boolean> {
+
+	private final int words;
+	private final LongBuffer cells;
+
+	/**
+	 * Creates a new {@code size*size} matrix on the heap with all bits cleared
+	 *
+	 * @param size size of the size*size grid, must be &gt; 0
+	 */
+	public BitMatrix(int size) {
+		this(size, false);
+	}
+
+	/**
+	 * Creates a new {@code size*size} matrix with all bits cleared
+	 *
+	 * @param size size of the size*size grid, must be &gt; 0
+	 * @param direct true to store the cells off-heap
+	 */
+	public BitMatrix(int size, boolean direct) {
+		super(size, direct);
+		this.words = wordsFor(size);
+		this.cells = allocate(capacity(size, words, Long.BYTES), direct).asLongBuffer();
+	}
+
+	/**
+	 * Copy constructor, the copy uses the same kind of storage
+	 *
+	 * @param matrix the matrix to copy from
+	 */
+	public BitMatrix(BitMatrix matrix) {
+		this(matrix.size(), matrix.isDirect());
+		LongBuffer source = matrix.cells.duplicate();
+		source.clear();
+		cells.put(source);
+	}
+
+	/**
+	 * @param bits number of bits
+	 * @return number of longs needed to hold the bits
+	 */
+	public static int wordsFor(int bits) {
+		return (bits + Long.SIZE - 1) >>> 6;
+	}
+
+	/**
+	 * @return number of longs per row
+	 */
+	public int wordsPerRow() {
+		return words;
+	}
+
+	/**
+	 * @param row the row of the element
+	 * @param column the column of the element
+	 * @return whether the bit is set
+	 */
+	public boolean getBit(int row, int column) {
+		checkBound("row", row);
+		checkBound("column", column);
+		return bit(row, column);
+	}
+
+	/**
+	 * @param row the row of the element
+	 * @param column the column of the element
+	 * @param value the new value of the bit
+	 */
+	public void putBit(int row, int column, boolean value) {
+		checkBound("row", row);
+		checkBound("column", column);
+		int index = row * words + (column >>> 6);
+		long word = cells.get(index);
+		cells.put(index, value ? word | (1L << column) : word & ~(1L << column));
+	}
+
+	/**
+	 * Copies the words of a row into an array
+	 *
+	 * @param row the row to copy
+	 * @param destination the array to copy to, must hold at least
+	 *        {@link #wordsPerRow()} longs; not null
+	 */
+	public void copyRow(int row, long[] destination) {
+		checkBound("row", row);
+		checkLength("destination", destination.length, 0, words);
+		LongBuffer view = cells.duplicate();
+		view.position(row * words);
+		view.get(destination, 0, words);
+	}
+
+	/**
+	 * Replaces the words of a row. Bits beyond {@link #size()} in the last
+	 * word are cleared
+	 *
+	 * @param row the row to set
+	 * @param source the array to copy from, must hold at least
+	 *        {@link #wordsPerRow()} longs; not null
+	 */
+	public void setRow(int row, long[] source) {
+		checkBound("row", row);
+		checkLength("source", source.length, 0, words);
+		int base = row * words;
+		for (int word = 0; word < words - 1; word++)
+			cells.put(base + word, source[word]);
+		cells.put(base + words - 1, source[words - 1] & lastWordMask());
+	}
+
+	/**
+	 * ORs the words of a row into an array, i.e. {@code destination |= row}
+	 *
+	 * @param row the row
+	 * @param destination the array to OR into, must hold at least
+	 *        {@link #wordsPerRow()} longs; not null
+	 */
+	public void orRowInto(int row, long[] destination) {
+		checkBound("row", row);
+		checkLength("destination", destination.length, 0, words);
+		int base = row * words;
+		for (int word = 0; word < words; word++)
+			destination[word] |= cells.get(base + word);
+	}
+
+	/**
+	 * @param row the row
+	 * @return number of set bits in the row
+	 */
+	public int cardinality(int row) {
+		checkBound("row", row);
+		int base = row * words;
+		int count = 0;
+		for (int word = 0; word < words; word++)
+			count += Long.bitCount(cells.get(base + word));
+		return count;
+	}
+
+	/**
+	 * Sets this matrix to the boolean product {@code left x right}, i.e. bit
+	 * (r, c) is set if there is some k with (r, k) set in left and (k, c) set
+	 * in right. Rows are computed in parallel on the common fork-join pool
+	 *
+	 * @param left the left operand, same size as this matrix; not null
+	 * @param right the right operand, same size as this matrix; not null
+	 */
+	public void multiply(BitMatrix left, BitMatrix right) {
+		if (left.size() != size() || right.size() != size())
+			throw new IllegalArgumentException("Operands must be of size " + size());
+		if (left == this || right == this)
+			throw new IllegalArgumentException("Operands must not be the result matrix");
+		forEachRowParallel(row -> {
+			long[] result = new long[words];
+			int base = row * words;
+			for (int word = 0; word < words; word++) {
+				long bits = left.cells.get(base + word);
+				while (bits != 0) {
+					int k = (word << 6) + Long.numberOfTrailingZeros(bits);
+					right.orRowInto(k, result);
+					bits &= bits - 1;
+				}
+			}
+			for (int word = 0; word < words; word++)
+				cells.put(base + word, result[word]);
+		});
+	}
+
+	/**
+	 * Sets every bit to a generated value, rows are generated in parallel on
+	 * the common fork-join pool
+	 *
+	 * @param generator the generator, called concurrently; not null
+	 */
+	public void parallelFill(Generator generator) {
+		Objects.requireNonNull(generator);
+		int size = size();
+		forEachRowParallel(row -> {
+			int base = row * words;
+			for (int word = 0; word < words; word++) {
+				long value = 0;
+				for (int bit = 0, column = word << 6; bit < Long.SIZE && column < size; bit++, column++)
+					if (generator.isSet(row, column)) value |= 1L << bit;
+				cells.put(base + word, value);
+			}
+		});
+	}
+
+	private boolean bit(int row, int column) {
+		return (cells.get(row * words + (column >>> 6)) & (1L << column)) != 0;
+	}
+
+	private long lastWordMask() {
+		int used = size() & (Long.SIZE - 1);
+		return used == 0 ? -1L : (1L << used) - 1;
+	}
+
+	@Override
+	public Boolean get(int row, int column) {
+		return getBit(row, column);
+	}
+
+	@Override
+	public void put(int row, int column, Boolean cell) {
+		putBit(row, column, Objects.requireNonNull(cell));
+	}
+
+	@Override
+	void swap(int row, int column) {
+		boolean value = bit(row, column);
+		putBit(row, column, bit(column, row));
+		putBit(column, row, value);
+	}
+
+	@Override
+	boolean cellsEqual(PrimitiveSquareMatrix<Boolean> that) {
+		// bits beyond size() are always clear
+		LongBuffer mine = cells.duplicate();
+		LongBuffer theirs = ((BitMatrix) that).cells.duplicate();
+		mine.clear();
+		theirs.clear();
+		return mine.equals(theirs);
+	}
+
+	@Override
+	int cellHash(int row, int column) {
+		return Boolean.hashCode(bit(row, column));
+	}
+
+	/**
+	 * Generates bits for {@link #parallelFill(Generator)}
+	 */
+	@FunctionalInterface
+	public interface Generator {
+
+		/**
+		 * @param row the row
+		 * @param column the column
+		 * @return whether the bit should be set
+		 */
+		boolean isSet(int row, int column);
+	}
+
+}
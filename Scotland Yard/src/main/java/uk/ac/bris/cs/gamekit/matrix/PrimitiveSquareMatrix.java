@@ -0,0 +1,281 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Base class for square matrices of primitives stored in one flat, row-major
+ * buffer, either on the heap or off-heap(see {@link #allocate(int, boolean)}).
+ * <br>
+ * The {@link Matrix} methods box every element and are meant for convenience
+ * only; subclasses provide primitive accessors, bulk row copies and a
+ * fork-join parallel fill for hot paths. <br>
+ * Concurrent writes to distinct rows are safe, everything else requires
+ * external synchronisation.
+ *
+ * @param <T> the boxed type of elements in the matrix
+ */
+public abstract class PrimitiveSquareMatrix<T> extends AbstractMatrix<T> {
+
+	/**
+	 * Rows per fork-join task below which filling is done sequentially
+	 */
+	private static final int ROWS_PER_TASK = 16;
+
+	private final int size;
+	private final boolean direct;
+
+	PrimitiveSquareMatrix(int size, boolean direct) {
+		if (size < 1) throw new IllegalArgumentException("Size must me > 0, got " + size);
+		this.size = size;
+		this.direct = direct;
+	}
+
+	/**
+	 * Allocates a zeroed byte buffer in native order
+	 *
+	 * @param bytes the capacity
+	 * @param direct whether to allocate off-heap
+	 * @return the buffer; never null
+	 */
+	static ByteBuffer allocate(int bytes, boolean direct) {
+		ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Checked multiplication for buffer sizes
+	 */
+	static int capacity(int size, int perRow, int bytesPerElement) {
+		long bytes = (long) size * perRow * bytesPerElement;
+		if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException(
+				"Matrix of size " + size + " exceeds the maximum buffer capacity");
+		return (int) bytes;
+	}
+
+	/**
+	 * @return the size of the size*size matrix
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the matrix is stored off-heap
+	 */
+	public final boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * Runs an action for every row index using the common fork-join pool,
+	 * splitting the rows into ranges of at least {@value #ROWS_PER_TASK}
+	 *
+	 * @param action the action to run per row; must only write to the given
+	 *        row
+	 */
+	final void forEachRowParallel(IntConsumer action) {
+		ForkJoinPool.commonPool().invoke(new RowTask(0, size, action));
+	}
+
+	private static final class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final IntConsumer action;
+
+		RowTask(int from, int to, IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= ROWS_PER_TASK) {
+				for (int row = from; row < to; row++)
+					action.accept(row);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RowTask(from, middle, action), new RowTask(middle, to, action));
+		}
+	}
+
+	final void checkBound(String name, int value) {
+		if (value < 0) throw new IndexOutOfBoundsException(name + " " + value + " < 0");
+		if (value >= size)
+			throw new IndexOutOfBoundsException(name + " " + value + " > " + (size - 1));
+	}
+
+	final void checkLength(String name, int length, int offset, int required) {
+		if (offset < 0 || length - offset < required) throw new IndexOutOfBoundsException(
+				name + " has " + (length - offset) + " elements after offset " + offset
+						+ ", " + required + " required");
+	}
+
+	final void checkSameSize(String name, PrimitiveSquareMatrix<?> matrix) {
+		if (matrix.size != size)
+			throw new IllegalArgumentException(name + ".size() != size()");
+	}
+
+	/**
+	 * @return the flat, row-major index of a cell of a matrix with one
+	 *         element per cell
+	 */
+	final int index(int row, int column) {
+		checkBound("row", row);
+		checkBound("column", column);
+		return row * size + column;
+	}
+
+	/**
+	 * @return the flat index of the first cell of a row of a matrix with one
+	 *         element per cell
+	 */
+	final int rowIndex(int row) {
+		checkBound("row", row);
+		return row * size;
+	}
+
+	/**
+	 * Same as {@link #rowIndex(int)}, also checking that an array holds a
+	 * whole row from the offset
+	 */
+	final int rowIndex(int row, String name, int length, int offset) {
+		checkLength(name, length, offset, size);
+		return rowIndex(row);
+	}
+
+	/**
+	 * Transposes the matrix in place, i.e. swaps every cell (r, c) with cell
+	 * (c, r)
+	 */
+	public final void transpose() {
+		for (int row = 0; row < size; row++)
+			for (int column = row + 1; column < size; column++)
+				swap(row, column);
+	}
+
+	/**
+	 * Swaps cell (row, column) with cell (column, row), both in bounds
+	 */
+	abstract void swap(int row, int column);
+
+	/**
+	 * @param that a matrix of the same class and size
+	 * @return true if all cells are equal as their boxed values are
+	 */
+	abstract boolean cellsEqual(PrimitiveSquareMatrix<T> that);
+
+	/**
+	 * @return the hash code of the boxed value of a cell, both in bounds
+	 */
+	abstract int cellHash(int row, int column);
+
+	@Override
+	public boolean inBounds(int row, int column) {
+		return (row >= 0 && row < size) && (column >= 0 && column < size);
+	}
+
+	@Override
+	public List<T> row(int row) {
+		checkBound("row", row);
+		return unmodifiableList(
+				IntStream.range(0, size).mapToObj(c -> get(row, c)).collect(toList()));
+	}
+
+	@Override
+	public void row(int row, List<T> values) {
+		checkBound("row", row);
+		if (size != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int column = 0; column < size; column++)
+			put(row, column, values.get(column));
+	}
+
+	@Override
+	public List<T> column(int column) {
+		checkBound("column", column);
+		return unmodifiableList(
+				IntStream.range(0, size).mapToObj(r -> get(r, column)).collect(toList()));
+	}
+
+	@Override
+	public void column(int column, List<T> values) {
+		checkBound("column", column);
+		if (size != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int row = 0; row < size; row++)
+			put(row, column, values.get(row));
+	}
+
+	@Override
+	public List<T> mainDiagonal() {
+		return unmodifiableList(
+				IntStream.range(0, size).mapToObj(i -> get(i, i)).collect(toList()));
+	}
+
+	@Override
+	public List<T> antiDiagonal() {
+		return unmodifiableList(
+				IntStream.range(0, size).mapToObj(i -> get(i, size - 1 - i)).collect(toList()));
+	}
+
+	@Override
+	public List<T> asList() {
+		return unmodifiableList(IntStream.range(0, size * size)
+				.mapToObj(i -> get(i / size, i % size)).collect(toList()));
+	}
+
+	@Override
+	public int columnSize() {
+		return size;
+	}
+
+	@Override
+	public int rowSize() {
+		return size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o != null && o.getClass() == getClass()) {
+			PrimitiveSquareMatrix<T> that = (PrimitiveSquareMatrix<T>) o;
+			return that.size == size && cellsEqual(that);
+		}
+		return super.equals(o);
+	}
+
+	/**
+	 * The same as {@link AbstractMatrix#hashCode()} without boxing, as a matrix
+	 * can be equal to one of another class with the same values
+	 */
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int row = 0; row < size; row++)
+			for (int column = 0; column < size; column++)
+				hash = 31 * hash + cellHash(row, column);
+		return 31 + hash;
+	}
+
+	@Override
+	public String toString() {
+		return IntStream.range(0, size)
+				.mapToObj(r -> row(r).stream().map(Object::toString).collect(joining(", ")))
+				.collect(joining("\n", "[", "]"));
+	}
+
+}
@@ -0,0 +1,285 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Answers "which nodes can be reached from these nodes in at most k moves"
+ * using boolean matrix products. <br>
+ * The map is described by one adjacency {@link BitMatrix} per layer(e.g. one
+ * per transport); a query selects the usable layers with a bit mask. For every
+ * (mask, k) the engine lazily builds the k-step closure {@code (I | A)^k} of
+ * the combined adjacency A, after which a query costs one row OR per source
+ * node. Query results are cached per (source set, k, mask). <br>
+ * Nodes are identified by their index, for engines built with
+ * {@link #fromGraph(Graph, ToIntFunction, int)} that is the index in
+ * {@link Graph#getNodes()}. <br>
+ * This class is thread safe.
+ */
+public final class Reachability {
+
+	/**
+	 * Maximum number of cached query results
+	 */
+	private static final int MAX_CACHED_QUERIES = 4096;
+
+	private final int size;
+	private final List<BitMatrix> layers;
+	private final ConcurrentMap<Integer, List<BitMatrix>> closures = new ConcurrentHashMap<>();
+	private final Cache<Query, long[]> queries = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_QUERIES)
+			.build();
+
+	/**
+	 * Creates a new engine
+	 *
+	 * @param layers the adjacency matrix of each layer, bit (r, c) is set if
+	 *        there is an edge from node r to node c. There must be at least one
+	 *        and at most 32 layers, all of the same size. The matrices must not
+	 *        be modified afterwards
+	 */
+	public Reachability(List<BitMatrix> layers) {
+		Objects.requireNonNull(layers);
+		if (layers.isEmpty() || layers.size() > Integer.SIZE)
+			throw new IllegalArgumentException("Between 1 and 32 layers required, got "
+					+ layers.size());
+		this.size = layers.get(0).size();
+		for (BitMatrix layer : layers)
+			if (layer.size() != size) throw new IllegalArgumentException("Layer sizes differ");
+		this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+	}
+
+	/**
+	 * Creates an engine from a graph, nodes are indexed in the order of
+	 * {@link Graph#getNodes()}
+	 *
+	 * @param graph the graph; not null
+	 * @param layerOf maps the data of an edge to its layer, in [0, layers)
+	 * @param layers number of layers
+	 * @param <V> the node value type
+	 * @param <D> the edge data type
+	 * @return the engine; never null
+	 */
+	public static <V, D> Reachability fromGraph(Graph<V, D> graph,
+			ToIntFunction<? super D> layerOf, int layers) {
+		Objects.requireNonNull(graph);
+		Objects.requireNonNull(layerOf);
+		List<Node<V>> nodes = graph.getNodes();
+		Map<V, Integer> indices = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++)
+			indices.put(nodes.get(i).value(), i);
+		List<BitMatrix> matrices = new ArrayList<>();
+		for (int i = 0; i < layers; i++)
+			matrices.add(new BitMatrix(nodes.size()));
+		for (int i = 0; i < nodes.size(); i++) {
+			for (Edge<V, D> edge : graph.getEdgesFrom(nodes.get(i))) {
+				int layer = layerOf.applyAsInt(edge.data());
+				if (layer < 0 || layer >= layers)
+					throw new IllegalArgumentException("Layer " + layer + " out of range");
+				matrices.get(layer).putBit(i, indices.get(edge.destination().value()), true);
+			}
+		}
+		return new Reachability(matrices);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of layers
+	 */
+	public int layerCount() {
+		return layers.size();
+	}
+
+	/**
+	 * @return a mask selecting every layer
+	 */
+	public int allLayers() {
+		return layers.size() == Integer.SIZE ? -1 : (1 << layers.size()) - 1;
+	}
+
+	/**
+	 * Finds all nodes reachable from any of the sources in at most k moves,
+	 * the sources themselves included
+	 *
+	 * @param sources the source node indices; not null
+	 * @param k maximum number of moves, must be &gt;= 0
+	 * @param mask the usable layers, bit i selects layer i
+	 * @return a new set of node indices; never null
+	 */
+	public BitSet reachable(BitSet sources, int k, int mask) {
+		Objects.requireNonNull(sources);
+		if (sources.length() > size) throw new IndexOutOfBoundsException(
+				"Source " + (sources.length() - 1) + " > " + (size - 1));
+		long[] words = Arrays.copyOf(sources.toLongArray(), BitMatrix.wordsFor(size));
+		return BitSet.valueOf(reachable(words, k, mask));
+	}
+
+	/**
+	 * Same as {@link #reachable(BitSet, int, int)} for node indices
+	 *
+	 * @param sources the source node indices; not null
+	 * @param k maximum number of moves, must be &gt;= 0
+	 * @param mask the usable layers, bit i selects layer i
+	 * @return a new set of node indices; never null
+	 */
+	public BitSet reachable(int[] sources, int k, int mask) {
+		BitSet set = new BitSet(size);
+		for (int source : sources) {
+			if (source < 0 || source >= size) throw new IndexOutOfBoundsException(
+					"Source " + source + " out of range");
+			set.set(source);
+		}
+		return reachable(set, k, mask);
+	}
+
+	/**
+	 * Same as {@link #reachable(BitSet, int, int)} with the sources and result
+	 * as {@link BitMatrix#wordsPerRow()} packed words
+	 *
+	 * @param sources the packed source set; not null, not modified
+	 * @param k maximum number of moves, must be &gt;= 0
+	 * @param mask the usable layers, bit i selects layer i
+	 * @return a new packed set; never null
+	 */
+	public long[] reachable(long[] sources, int k, int mask) {
+		Objects.requireNonNull(sources);
+		if (k < 0) throw new IllegalArgumentException("k must be >= 0, got " + k);
+		if (sources.length != BitMatrix.wordsFor(size)) throw new IllegalArgumentException(
+				"Expected " + BitMatrix.wordsFor(size) + " words, got " + sources.length);
+		int layerMask = mask & allLayers();
+		if (k == 0 || layerMask == 0) return sources.clone();
+		Query query = new Query(sources.clone(), k, layerMask);
+		long[] result = queries.getIfPresent(query);
+		if (result == null) {
+			result = compute(query.sources, k, layerMask);
+			queries.put(query, result);
+		}
+		return result.clone();
+	}
+
+	/**
+	 * Finds all nodes reachable from any of the sources in exactly one move,
+	 * this is not cached
+	 *
+	 * @param sources the packed source set; not null, not modified
+	 * @param mask the usable layers, bit i selects layer i
+	 * @param result receives the packed set, may not be sources; not null
+	 */
+	public void step(long[] sources, int mask, long[] result) {
+		int words = BitMatrix.wordsFor(size);
+		if (sources.length != words || result.length != words)
+			throw new IllegalArgumentException("Expected " + words + " words");
+		if (sources == result) throw new IllegalArgumentException("sources == result");
+		Arrays.fill(result, 0);
+		for (int word = 0; word < words; word++) {
+			long bits = sources[word];
+			while (bits != 0) {
+				int node = (word << 6) + Long.numberOfTrailingZeros(bits);
+				for (int layer = 0; layer < layers.size(); layer++)
+					if ((mask & (1 << layer)) != 0) layers.get(layer).orRowInto(node, result);
+				bits &= bits - 1;
+			}
+		}
+	}
+
+	/**
+	 * The k-step closure of the layers selected by mask; bit (r, c) is set if
+	 * c is reachable from r in at most k moves
+	 *
+	 * @param k number of moves, must be &gt;= 1
+	 * @param mask the usable layers, bit i selects layer i
+	 * @return the closure, shared and must not be modified; never null
+	 */
+	public BitMatrix closure(int k, int mask) {
+		if (k < 1) throw new IllegalArgumentException("k must be >= 1, got " + k);
+		int layerMask = mask & allLayers();
+		List<BitMatrix> powers = closures.computeIfAbsent(layerMask,
+				m -> Collections.synchronizedList(new ArrayList<>()));
+		synchronized (powers) {
+			if (powers.isEmpty()) powers.add(stepOf(layerMask));
+			while (powers.size() < k) {
+				BitMatrix next = new BitMatrix(size);
+				next.multiply(powers.get(powers.size() - 1), powers.get(0));
+				powers.add(next);
+			}
+			return powers.get(k - 1);
+		}
+	}
+
+	private long[] compute(long[] sources, int k, int mask) {
+		BitMatrix closure = closure(k, mask);
+		long[] result = new long[sources.length];
+		for (int word = 0; word < sources.length; word++) {
+			long bits = sources[word];
+			while (bits != 0) {
+				closure.orRowInto((word << 6) + Long.numberOfTrailingZeros(bits), result);
+				bits &= bits - 1;
+			}
+		}
+		return result;
+	}
+
+	private BitMatrix stepOf(int mask) {
+		BitMatrix step = new BitMatrix(size);
+		long[] row = new long[step.wordsPerRow()];
+		for (int node = 0; node < size; node++) {
+			Arrays.fill(row, 0);
+			row[node >>> 6] |= 1L << node;
+			for (int layer = 0; layer < layers.size(); layer++)
+				if ((mask & (1 << layer)) != 0) layers.get(layer).orRowInto(node, row);
+			step.setRow(node, row);
+		}
+		return step;
+	}
+
+	private static final class Query {
+
+		private final long[] sources;
+		private final int k;
+		private final int mask;
+		private final int hash;
+
+		Query(long[] sources, int k, int mask) {
+			this.sources = sources;
+			this.k = k;
+			this.mask = mask;
+			this.hash = 31 * (31 * Arrays.hashCode(sources) + k) + mask;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Query)) return false;
+			Query that = (Query) o;
+			return k == that.k && mask == that.mask && Arrays.equals(sources, that.sources);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
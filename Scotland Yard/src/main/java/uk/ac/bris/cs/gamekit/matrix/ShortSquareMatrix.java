@@ -0,0 +1,208 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.nio.ShortBuffer;
+import java.util.Objects;
+
+/**
+ * A square matrix of {@code short} values stored in one flat, row-major
+ * buffer, see {@link PrimitiveSquareMatrix}. Suitable for
+ * small non-negative quantities such as hop distances
+ */
+public final class ShortSquareMatrix extends PrimitiveSquareMatrix<Short> {
+
+	private final ShortBuffer cells;
+
+	/**
+	 * Creates a new {@code size*size} matrix on the heap with all cells set to
+	 * {@code 0}
+	 *
+	 * @param size size of the size*size grid, must be &gt; 0
+	 */
+	public ShortSquareMatrix(int size) {
+		this(size, false);
+	}
+
+	/**
+	 * Creates a new {@code size*size} matrix with all cells set to {@code 0}
+	 *
+	 * @param size size of the size*size grid, must be &gt; 0
+	 * @param direct true to store the cells off-heap
+	 */
+	public ShortSquareMatrix(int size, boolean direct) {
+		super(size, direct);
+		this.cells = allocate(capacity(size, size, Short.BYTES), direct).asShortBuffer();
+	}
+
+	/**
+	 * Copy constructor, the copy uses the same kind of storage
+	 *
+	 * @param matrix the matrix to copy from
+	 */
+	public ShortSquareMatrix(ShortSquareMatrix matrix) {
+		this(matrix.size(), matrix.isDirect());
+		ShortBuffer source = matrix.cells.duplicate();
+		source.clear();
+		cells.put(source);
+	}
+
+	/**
+	 * Get the value at the specified location
+	 *
+	 * @param row the row of the element
+	 * @param column the column of the element
+	 * @return the value
+	 */
+	public short getShort(int row, int column) {
+		return cells.get(index(row, column));
+	}
+
+	/**
+	 * Set the value at the specified location
+	 *
+	 * @param row the row of the element
+	 * @param column the column of the element
+	 * @param value the value
+	 */
+	public void putShort(int row, int column, short value) {
+		cells.put(index(row, column), value);
+	}
+
+	/**
+	 * Get the value at a flat, row-major index without per-dimension bound
+	 * checks
+	 *
+	 * @param index {@code row * size() + column}
+	 * @return the value
+	 */
+	public short getShort(int index) {
+		return cells.get(index);
+	}
+
+	/**
+	 * Set the value at a flat, row-major index without per-dimension bound
+	 * checks
+	 *
+	 * @param index {@code row * size() + column}
+	 * @param value the value
+	 */
+	public void putShort(int index, short value) {
+		cells.put(index, value);
+	}
+
+	/**
+	 * Copies a whole row into an array
+	 *
+	 * @param row the row to copy
+	 * @param destination the array to copy to; not null
+	 * @param offset the index in destination to copy the first value to
+	 */
+	public void copyRow(int row, short[] destination, int offset) {
+		ShortBuffer view = cells.duplicate();
+		view.position(rowIndex(row, "destination", destination.length, offset));
+		view.get(destination, offset, size());
+	}
+
+	/**
+	 * Replaces a whole row with values from an array
+	 *
+	 * @param row the row to set
+	 * @param source the array to copy from; not null
+	 * @param offset the index in source of the first value
+	 */
+	public void setRow(int row, short[] source, int offset) {
+		ShortBuffer view = cells.duplicate();
+		view.position(rowIndex(row, "source", source.length, offset));
+		view.put(source, offset, size());
+	}
+
+	/**
+	 * Copies a whole row from another matrix of the same size
+	 *
+	 * @param source the matrix to copy from; not null
+	 * @param sourceRow the row in source
+	 * @param row the row in this matrix
+	 */
+	public void copyRowFrom(ShortSquareMatrix source, int sourceRow, int row) {
+		checkSameSize("source", source);
+		int start = source.rowIndex(sourceRow);
+		ShortBuffer from = source.cells.duplicate();
+		from.limit(start + size()).position(start);
+		ShortBuffer to = cells.duplicate();
+		to.position(rowIndex(row));
+		to.put(from);
+	}
+
+	/**
+	 * Sets every cell to the same value
+	 *
+	 * @param value the value
+	 */
+	public void fill(short value) {
+		for (int i = 0, count = size() * size(); i < count; i++)
+			cells.put(i, value);
+	}
+
+	/**
+	 * Sets every cell to a generated value, rows are generated in parallel on
+	 * the common fork-join pool
+	 *
+	 * @param generator the generator, called concurrently; not null
+	 */
+	public void parallelFill(Generator generator) {
+		Objects.requireNonNull(generator);
+		int size = size();
+		forEachRowParallel(row -> {
+			int base = row * size;
+			for (int column = 0; column < size; column++)
+				cells.put(base + column, generator.valueAt(row, column));
+		});
+	}
+
+	@Override
+	public Short get(int row, int column) {
+		return getShort(row, column);
+	}
+
+	@Override
+	public void put(int row, int column, Short cell) {
+		putShort(row, column, Objects.requireNonNull(cell));
+	}
+
+	@Override
+	void swap(int row, int column) {
+		int index = row * size() + column;
+		int transposed = column * size() + row;
+		short value = cells.get(index);
+		cells.put(index, cells.get(transposed));
+		cells.put(transposed, value);
+	}
+
+	@Override
+	boolean cellsEqual(PrimitiveSquareMatrix<Short> that) {
+		ShortBuffer mine = cells.duplicate();
+		ShortBuffer theirs = ((ShortSquareMatrix) that).cells.duplicate();
+		mine.clear();
+		theirs.clear();
+		return mine.equals(theirs);
+	}
+
+	@Override
+	int cellHash(int row, int column) {
+		return Short.hashCode(cells.get(row * size() + column));
+	}
+
+	/**
+	 * Generates cell values for {@link #parallelFill(Generator)}
+	 */
+	@FunctionalInterface
+	public interface Generator {
+
+		/**
+		 * @param row the row
+		 * @param column the column
+		 * @return the value of the cell
+		 */
+		short valueAt(int row, int column);
+	}
+
+}
@@ -0,0 +1,286 @@
+package uk.ac.bris.cs.scotlandyard;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javafx.geometry.Point2D;
+
+/**
+ * Map image coordinates of every node in primitive arrays, with a 2-d tree for
+ * spatial queries <br>
+ * The tree is implicit: the arrays are ordered so that every range has its
+ * median, split alternately on x and y, in the middle. Nearest node, nodes
+ * inside a rectangle and nodes within a radius are answered without
+ * allocating per visited node, in logarithmic time for small results. The
+ * {@link Point2D} of every node is created once and shared. <br>
+ * Node numbers must be non-negative. This class is immutable and thread safe.
+ */
+public final class NodeCoordinates {
+
+	/**
+	 * Returned by the nearest node queries when there is no node
+	 */
+	public static final int NONE = -1;
+
+	private final int[] nodes;
+	private final double[] xs;
+	private final double[] ys;
+	private final Point2D[] points;
+	// tree position of each node, NONE if the node has no coordinate
+	private final int[] positions;
+
+	private NodeCoordinates(int[] nodes, double[] xs, double[] ys) {
+		this.nodes = nodes;
+		this.xs = xs;
+		this.ys = ys;
+		build(0, nodes.length, 0);
+		points = new Point2D[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+			points[i] = new Point2D(xs[i], ys[i]);
+		int max = -1;
+		for (int node : nodes)
+			max = Math.max(max, node);
+		positions = new int[max + 1];
+		Arrays.fill(positions, NONE);
+		for (int i = 0; i < nodes.length; i++)
+			positions[nodes[i]] = i;
+	}
+
+	/**
+	 * @param coordinates node to x and y coordinate, e.g. from
+	 *        {@link uk.ac.bris.cs.scotlandyard.model.StandardGame#pngMapPositionEntries()}
+	 * @return the coordinates
+	 * @throws IllegalArgumentException if a node is negative
+	 */
+	public static NodeCoordinates of(Map<Integer, Entry<Integer, Integer>> coordinates) {
+		int[] nodes = new int[coordinates.size()];
+		double[] xs = new double[nodes.length];
+		double[] ys = new double[nodes.length];
+		int i = 0;
+		for (Entry<Integer, Entry<Integer, Integer>> entry : coordinates.entrySet()) {
+			if (entry.getKey() < 0)
+				throw new IllegalArgumentException("Negative node " + entry.getKey());
+			nodes[i] = entry.getKey();
+			xs[i] = entry.getValue().getKey();
+			ys[i] = entry.getValue().getValue();
+			i++;
+		}
+		return new NodeCoordinates(nodes, xs, ys);
+	}
+
+	/**
+	 * @param nodes the nodes
+	 * @param xs the x coordinate of each node
+	 * @param ys the y coordinate of each node
+	 * @return the coordinates; the arrays are copied
+	 * @throws IllegalArgumentException if the lengths differ or a node is
+	 *         negative
+	 */
+	public static NodeCoordinates of(int[] nodes, double[] xs, double[] ys) {
+		if (xs.length != nodes.length || ys.length != nodes.length)
+			throw new IllegalArgumentException("Lengths of nodes and coordinates differ");
+		for (int node : nodes)
+			if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+		return new NodeCoordinates(nodes.clone(), xs.clone(), ys.clone());
+	}
+
+	/**
+	 * @return number of nodes with a coordinate
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * @return the largest node with a coordinate, {@link #NONE} if there are no
+	 *         nodes
+	 */
+	public int maxNode() {
+		return positions.length - 1;
+	}
+
+	public boolean contains(int node) {
+		return node >= 0 && node < positions.length && positions[node] != NONE;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the node has no coordinate
+	 */
+	public double x(int node) {
+		return xs[position(node)];
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the node has no coordinate
+	 */
+	public double y(int node) {
+		return ys[position(node)];
+	}
+
+	/**
+	 * @return the coordinate of the node, the same instance on every call
+	 * @throws IllegalArgumentException if the node has no coordinate
+	 */
+	public Point2D point(int node) {
+		return points[position(node)];
+	}
+
+	private int position(int node) {
+		if (!contains(node)) throw new IllegalArgumentException("No coordinate for node " + node);
+		return positions[node];
+	}
+
+	/**
+	 * @return the node nearest to the point, {@link #NONE} if there are no
+	 *         nodes
+	 */
+	public int nearest(double x, double y) {
+		return nearest(x, y, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * @param maxDistance only consider nodes at most this far away
+	 * @return the node nearest to the point, {@link #NONE} if no node is
+	 *         close enough
+	 */
+	public int nearest(double x, double y, double maxDistance) {
+		Nearest nearest = new Nearest(maxDistance * maxDistance);
+		nearest(x, y, 0, nodes.length, 0, nearest);
+		return nearest.position == NONE ? NONE : nodes[nearest.position];
+	}
+
+	private void nearest(double x, double y, int from, int to, int depth, Nearest nearest) {
+		if (from >= to) return;
+		int mid = (from + to) >>> 1;
+		double dx = x - xs[mid];
+		double dy = y - ys[mid];
+		double distance = dx * dx + dy * dy;
+		if (distance <= nearest.distance) {
+			nearest.distance = distance;
+			nearest.position = mid;
+		}
+		double split = (depth & 1) == 0 ? dx : dy;
+		if (split < 0) {
+			nearest(x, y, from, mid, depth + 1, nearest);
+			if (split * split <= nearest.distance) nearest(x, y, mid + 1, to, depth + 1, nearest);
+		} else {
+			nearest(x, y, mid + 1, to, depth + 1, nearest);
+			if (split * split <= nearest.distance) nearest(x, y, from, mid, depth + 1, nearest);
+		}
+	}
+
+	/**
+	 * @return all nodes inside the rectangle, bounds inclusive, in ascending
+	 *         order
+	 */
+	public int[] inside(double minX, double minY, double maxX, double maxY) {
+		Collector collector = new Collector();
+		inside(minX, minY, maxX, maxY, 0, nodes.length, 0, collector);
+		return collector.sorted();
+	}
+
+	private void inside(double minX, double minY, double maxX, double maxY, int from, int to,
+			int depth, Collector collector) {
+		if (from >= to) return;
+		int mid = (from + to) >>> 1;
+		double x = xs[mid];
+		double y = ys[mid];
+		if (x >= minX && x <= maxX && y >= minY && y <= maxY) collector.add(nodes[mid]);
+		boolean vertical = (depth & 1) == 0;
+		if (vertical ? minX <= x : minY <= y)
+			inside(minX, minY, maxX, maxY, from, mid, depth + 1, collector);
+		if (vertical ? maxX >= x : maxY >= y)
+			inside(minX, minY, maxX, maxY, mid + 1, to, depth + 1, collector);
+	}
+
+	/**
+	 * @return all nodes at most radius away from the point, in ascending
+	 *         order
+	 */
+	public int[] within(double x, double y, double radius) {
+		Collector collector = new Collector();
+		within(x, y, radius * radius, radius, 0, nodes.length, 0, collector);
+		return collector.sorted();
+	}
+
+	private void within(double x, double y, double radius2, double radius, int from, int to,
+			int depth, Collector collector) {
+		if (from >= to) return;
+		int mid = (from + to) >>> 1;
+		double dx = x - xs[mid];
+		double dy = y - ys[mid];
+		if (dx * dx + dy * dy <= radius2) collector.add(nodes[mid]);
+		double split = (depth & 1) == 0 ? dx : dy;
+		if (split <= radius) within(x, y, radius2, radius, from, mid, depth + 1, collector);
+		if (split >= -radius) within(x, y, radius2, radius, mid + 1, to, depth + 1, collector);
+	}
+
+	// orders [from, to) so that every range has its median in the middle
+	private void build(int from, int to, int depth) {
+		if (to - from < 2) return;
+		int mid = (from + to) >>> 1;
+		select(from, to - 1, mid, (depth & 1) == 0 ? xs : ys);
+		build(from, mid, depth + 1);
+		build(mid + 1, to, depth + 1);
+	}
+
+	// quickselect: puts the k-th smallest key of [left, right] at k
+	private void select(int left, int right, int k, double[] keys) {
+		while (left < right) {
+			double pivot = keys[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot)
+					i++;
+				while (keys[j] > pivot)
+					j--;
+				if (i <= j) swap(i++, j--);
+			}
+			if (k <= j) right = j;
+			else if (k >= i) left = i;
+			else return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int node = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = node;
+		double x = xs[i];
+		xs[i] = xs[j];
+		xs[j] = x;
+		double y = ys[i];
+		ys[i] = ys[j];
+		ys[j] = y;
+	}
+
+	private static final class Nearest {
+
+		double distance;
+		int position = NONE;
+
+		Nearest(double distance) {
+			this.distance = distance;
+		}
+	}
+
+	private static final class Collector {
+
+		private int[] nodes = new int[16];
+		private int size;
+
+		void add(int node) {
+			if (size == nodes.length) nodes = Arrays.copyOf(nodes, size * 2);
+			nodes[size++] = node;
+		}
+
+		int[] sorted() {
+			int[] result = Arrays.copyOf(nodes, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+
+}
@@ -1,17 +1,21 @@
 package uk.ac.bris.cs.scotlandyard;
 
-import com.google.common.collect.ImmutableMap;
-
-import static com.google.common.io.Resources.getResource;
-import static com.google.common.io.Resources.readLines;
 import static java.lang.String.*;
-import static java.util.function.Function.*;
-import static java.util.stream.Collectors.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableMap;
 
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
@@ -23,49 +27,175 @@ import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 
 /**
- * Manager for static resources such as game map and graph
+ * Manager for static resources such as game map and graph <br>
+ * Every resource is loaded on its own the first time it is asked for, in the
+ * background for the {@code *Async} methods, and then kept in memory. The
+ * graph and coordinates never touch JavaFX so headless users can call
+ * {@link #getGraph()} and {@link #coordinateAtNode(int)} without decoding any
+ * image. This class is thread safe. <br>
+ * Loading runs on a few dedicated daemon threads rather than the common
+ * fork-join pool, which AI searches keep busy. A load that fails is forgotten,
+ * so the next request tries again.
  */
 public final class ResourceManager implements ResourceProvider {
 
+	private static final AtomicInteger LOADERS = new AtomicInteger();
+	private static final Executor LOADER = Executors.newFixedThreadPool(
+			Math.min(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+				Thread thread = new Thread(runnable,
+						"Resource loader #" + LOADERS.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
 	private final Point2D TOP_LEFT_OFFSET = new Point2D(60, 60);
 
 	public enum ImageResource {
-		ICON, MAP, UOB_LOGO
+		ICON("/icon.png"), MAP("/map_large.png"), UOB_LOGO("/uob_logo.png");
+
+		private final String path;
+
+		ImageResource(String path) {
+			this.path = path;
+		}
 	}
 
-	private Map<ImageResource, Image> imageResources;
-	private Map<Ticket, Image> ticketResources;
-	private Map<Integer, Entry<Integer, Integer>> mapCoordinates;
-	private Graph<Integer, Transport> graph;
+	private final Map<ImageResource, CompletableFuture<Image>> imageResources =
+			new ConcurrentHashMap<>();
+	private final Map<Ticket, CompletableFuture<Image>> ticketResources =
+			new ConcurrentHashMap<>();
+	private final Map<Boolean, CompletableFuture<Map<Integer, Entry<Integer, Integer>>>>
+			mapCoordinates = new ConcurrentHashMap<>(1);
+	private final Map<Boolean, CompletableFuture<NodeCoordinates>> nodeCoordinates =
+			new ConcurrentHashMap<>(1);
+	private final Map<Boolean, CompletableFuture<Graph<Integer, Transport>>> graph =
+			new ConcurrentHashMap<>(1);
+	// once built, looked up without going through the future
+	private volatile NodeCoordinates loadedCoordinates;
 
 	/**
-	 * Loads all resources into memory <br>
-	 * This should be called before any resources are required
+	 * Loads all resources in parallel and waits for the graph and coordinates,
+	 * images keep decoding in the background <br>
+	 * Calling this is optional, it only gets the work started early
 	 *
-	 * @throws IOException if any of the resources cannot be found
+	 * @throws IOException if the graph or coordinates cannot be loaded
 	 */
 	public void loadAllResources() throws IOException {
+		for (ImageResource resource : ImageResource.values())
+			getImageAsync(resource);
+		for (Ticket ticket : Ticket.values())
+			getTicketAsync(ticket);
+		CompletableFuture<?> coordinates = getNodeCoordinatesAsync();
+		await(getGraphAsync());
+		await(coordinates);
+	}
+
+	/**
+	 * @param resource the image
+	 * @return the image, decoded in the background on first use
+	 */
+	public CompletableFuture<Image> getImageAsync(ImageResource resource) {
+		return cached(imageResources, resource, () -> load(() -> loadImage(resource.path)));
+	}
+
+	/**
+	 * @param ticket the ticket
+	 * @return the ticket image, decoded in the background on first use
+	 */
+	public CompletableFuture<Image> getTicketAsync(Ticket ticket) {
+		return cached(ticketResources, ticket, () -> load(
+				() -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase()))));
+	}
+
+	/**
+	 * @return the graph, loaded in the background on first use
+	 */
+	public CompletableFuture<Graph<Integer, Transport>> getGraphAsync() {
+		return cached(graph, true, () -> load(() -> {
+			try {
+				return new ImmutableGraph<>(StandardGame.standardGraph());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}));
+	}
 
-		// shared images
-		imageResources = ImmutableMap.of(
-				ImageResource.MAP, loadImage("/map_large.png"),
-				ImageResource.UOB_LOGO, loadImage("/uob_logo.png"),
-				ImageResource.ICON, loadImage("/icon.png"));
+	/**
+	 * @return the map image coordinates of every node, loaded in the
+	 *         background on first use
+	 */
+	public CompletableFuture<Map<Integer, Entry<Integer, Integer>>> getCoordinatesAsync() {
+		return cached(mapCoordinates, true, () -> load(() -> {
+			try {
+				return ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}));
+	}
+
+	/**
+	 * @return the coordinates with a spatial index, built in the background
+	 *         on first use
+	 */
+	public CompletableFuture<NodeCoordinates> getNodeCoordinatesAsync() {
+		return cached(nodeCoordinates, true,
+				() -> getCoordinatesAsync().thenApplyAsync(NodeCoordinates::of, LOADER));
+	}
 
-		ticketResources = ImmutableMap.copyOf(Stream.of(Ticket.values()).collect(toMap(
-				identity(),
-				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
+	// loads a value once per key, forgetting it if loading fails; single
+	// values use a constant key
+	private static <K, V> CompletableFuture<V> cached(Map<K, CompletableFuture<V>> cache, K key,
+			Supplier<CompletableFuture<V>> loader) {
+		CompletableFuture<V> future = cache.get(key);
+		if (future != null) return future;
+		return cache.computeIfAbsent(key, k -> {
+			CompletableFuture<V> loading = loader.get();
+			// async so a load failing at once does not update the map from
+			// inside computeIfAbsent
+			loading.whenCompleteAsync((value, failure) -> {
+				if (failure != null) cache.remove(k, loading);
+			}, LOADER);
+			return loading;
+		});
+	}
 
-		mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
-		graph = new ImmutableGraph<>(StandardGame.standardGraph());
+	private static <V> CompletableFuture<V> load(Supplier<V> loader) {
+		return CompletableFuture.supplyAsync(loader, LOADER);
 	}
 
 	private static Image loadImage(String path) {
-		return new Image(path, -1, -1, true, true, false);
+		Image image = new Image(path, -1, -1, true, true, false);
+		if (image.isError())
+			throw new UncheckedIOException(new IOException("Unable to load " + path,
+					image.getException()));
+		return image;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading resources", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
 	}
 
 	public Image getImage(ImageResource resource) {
-		return imageResources.get(resource);
+		return join(getImageAsync(resource));
 	}
 
 	@Override
@@ -75,18 +205,29 @@ public final class ResourceManager implements ResourceProvider {
 
 	@Override
 	public Image getTicket(Ticket ticket) {
-		return ticketResources.get(ticket);
+		return join(getTicketAsync(ticket));
 	}
 
 	@Override
 	public Graph<Integer, Transport> getGraph() {
-		return graph;
+		return join(getGraphAsync());
 	}
 
+	public NodeCoordinates getNodeCoordinates() {
+		NodeCoordinates coordinates = loadedCoordinates;
+		if (coordinates == null)
+			loadedCoordinates = coordinates = join(getNodeCoordinatesAsync());
+		return coordinates;
+	}
+
+	/**
+	 * @return the coordinate of the node, shared rather than allocated per
+	 *         call; null if the node has no coordinate
+	 */
 	@Override
 	public Point2D coordinateAtNode(int node) {
-		Entry<Integer, Integer> entry = mapCoordinates.get(node);
-		return new Point2D(entry.getKey(), entry.getValue());
+		NodeCoordinates coordinates = getNodeCoordinates();
+		return coordinates.contains(node) ? coordinates.point(node) : null;
 	}
 
 }
@@ -7,10 +7,19 @@ import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
 import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
@@ -21,6 +30,12 @@ import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
  */
 public final class AI {
 
+	/**
+	 * Resource listing the binary names of all {@link ManagedAI} classes, one
+	 * per line, written by {@link ManagedAIProcessor}
+	 */
+	public static final String INDEX = "META-INF/scotlandyard/managed-ai";
+
 	private final String name;
 	private final VisualiserType type;
 	private final Class<? extends PlayerFactory> factoryClass;
@@ -75,21 +90,82 @@ public final class AI {
 		return Objects.hash(getName());
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Finds all {@link ManagedAI} classes from the {@link #INDEX} resources on
+	 * the classpath, or by scanning the classpath if there is no index
+	 *
+	 * @return the AIs; never null
+	 */
 	public static List<AI> scanClasspath() {
-		List<String> annotated = new FastClasspathScanner().scan()
-				.getNamesOfClassesWithAnnotation(ManagedAI.class);
-		List<AI> ais = annotated.stream().map(c -> {
+		return scanClasspath(AI.class.getClassLoader());
+	}
+
+	static List<AI> scanClasspath(ClassLoader loader) {
+		Optional<Set<String>> indexed = readIndex(loader);
+		List<AI> ais = indexed.isPresent() ? fromIndex(indexed.get(), loader)
+				: fromClassNames(new FastClasspathScanner().scan()
+						.getNamesOfClassesWithAnnotation(ManagedAI.class), loader);
+		return checkUnique(ais);
+	}
+
+	private static Optional<Set<String>> readIndex(ClassLoader loader) {
+		try {
+			Enumeration<URL> urls = loader.getResources(INDEX);
+			if (!urls.hasMoreElements()) return Optional.empty();
+			Set<String> names = new LinkedHashSet<>();
+			while (urls.hasMoreElements()) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+						urls.nextElement().openStream(), StandardCharsets.UTF_8))) {
+					reader.lines().map(String::trim).filter(l -> !l.isEmpty())
+							.forEach(names::add);
+				}
+			}
+			return Optional.of(names);
+		} catch (IOException e) {
+			System.err.println("Unable to read " + INDEX + ", scanning the classpath instead: "
+					+ e);
+			return Optional.empty();
+		}
+	}
+
+	private static List<AI> fromIndex(Set<String> names, ClassLoader loader) {
+		// indexes of incremental builds may name classes that are gone or no
+		// longer annotated, the processor rejects anything else at build time
+		List<String> present = names.stream().filter(name -> {
+			try {
+				Class<?> clazz = Class.forName(name, false, loader);
+				if (clazz.isAnnotationPresent(ManagedAI.class)
+						&& PlayerFactory.class.isAssignableFrom(clazz))
+					return true;
+				System.err.println("Skipping " + name + " in " + INDEX
+						+ ", it is not a @ManagedAI PlayerFactory");
+				return false;
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}).collect(toList());
+		return fromClassNames(present, loader);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<AI> fromClassNames(List<String> names, ClassLoader loader) {
+		return names.stream().map(c -> {
 			try {
-				Class<?> clazz = Class.forName(c);
+				Class<?> clazz = Class.forName(c, true, loader);
 				if (!PlayerFactory.class.isAssignableFrom(clazz))
 					throw new IllegalArgumentException(
 							c + " does not implement " + PlayerFactory.class);
-				return new AI(clazz.getAnnotation(ManagedAI.class), (Class<PlayerFactory>) clazz);
+				ManagedAI annotation = clazz.getAnnotation(ManagedAI.class);
+				if (annotation == null)
+					throw new IllegalArgumentException(c + " is not annotated with " + ManagedAI.class);
+				return new AI(annotation, (Class<PlayerFactory>) clazz);
 			} catch (ClassNotFoundException e) {
 				throw new RuntimeException(e);
 			}
 		}).collect(toList());
+	}
+
+	private static List<AI> checkUnique(List<AI> ais) {
 		Map<AI, Long> map = ais.stream().collect(groupingBy(identity(), counting()));
 		Map<AI, Long> histogram = map.entrySet().stream().filter(e -> e.getValue() > 1)
 				.collect(toMap(Entry::getKey, Entry::getValue));
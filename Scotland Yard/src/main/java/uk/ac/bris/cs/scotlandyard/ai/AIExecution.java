@@ -0,0 +1,190 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * How {@link AIPool} runs the moves of AI players. <br>
+ * Each group of AIs gets its own executor from
+ * {@link #create(String)}, which is shut down when the pool terminates.
+ * <ul>
+ * <li>{@link #fixed(int)}: a bounded pool of platform threads(the default)</li>
+ * <li>{@link #workStealing(int)}: a work-stealing pool</li>
+ * <li>{@link #callerRuns()}: moves run on the thread asking for them and are
+ * made when the player returns, for deterministic single-threaded
+ * simulations</li>
+ * <li>{@link #virtualThreads()}: one virtual thread per move, for many
+ * concurrent games whose AIs mostly wait; needs a JDK with virtual
+ * threads</li>
+ * </ul>
+ */
+public interface AIExecution {
+
+	/**
+	 * System property selecting the execution, one of {@code fixed},
+	 * {@code work-stealing}, {@code caller-runs} or {@code virtual}
+	 */
+	String EXECUTION_PROPERTY = "scotlandyard.ai.execution";
+
+	/**
+	 * System property overriding the number of threads per group of the
+	 * {@code fixed} and {@code work-stealing} executions
+	 */
+	String PARALLELISM_PROPERTY = "scotlandyard.ai.threads";
+
+	/**
+	 * Creates the executor of one group
+	 *
+	 * @param name a name for the threads; not null
+	 * @return a new executor; not null
+	 */
+	ExecutorService create(String name);
+
+	/**
+	 * @return whether moves are interrupted and their latest proposal made
+	 *         when the time limit passes; when false moves are made only once
+	 *         the player returns
+	 */
+	default boolean enforcesDeadlines() {
+		return true;
+	}
+
+	/**
+	 * @param threads number of threads per group, must be &gt; 0
+	 * @return an execution with a fixed pool of daemon threads per group
+	 */
+	static AIExecution fixed(int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads must be > 0, got " + threads);
+		return name -> Executors.newFixedThreadPool(threads, daemonThreads(name));
+	}
+
+	/**
+	 * @param parallelism target parallelism per group, must be &gt; 0
+	 * @return an execution with a work-stealing pool of daemon threads per
+	 *         group
+	 */
+	static AIExecution workStealing(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be > 0, got " + parallelism);
+		// as Executors.newWorkStealingPool, with named daemon threads
+		return name -> new ForkJoinPool(parallelism, daemonWorkers(name), null, true);
+	}
+
+	/**
+	 * @return an execution running moves on the calling thread
+	 */
+	static AIExecution callerRuns() {
+		return new AIExecution() {
+			@Override
+			public ExecutorService create(String name) {
+				return MoreExecutors.newDirectExecutorService();
+			}
+
+			@Override
+			public boolean enforcesDeadlines() {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @return whether the running JDK supports virtual threads
+	 */
+	static boolean virtualThreadsSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Virtual threads are created reflectively, so this compiles and runs on
+	 * older JDKs as long as it is not used
+	 *
+	 * @return an execution starting a virtual thread per move
+	 * @throws UnsupportedOperationException if the JDK has no virtual threads
+	 */
+	static AIExecution virtualThreads() {
+		if (!virtualThreadsSupported())
+			throw new UnsupportedOperationException("Virtual threads need JDK 21 or newer");
+		return name -> {
+			try {
+				Class<?> builder = Class.forName("java.lang.Thread$Builder");
+				Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+				virtual = builder.getMethod("name", String.class, long.class)
+						.invoke(virtual, name + " #", 1L);
+				ThreadFactory factory = (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+				Method create = Executors.class.getMethod("newThreadPerTaskExecutor",
+						ThreadFactory.class);
+				return (ExecutorService) create.invoke(null, factory);
+			} catch (ReflectiveOperationException e) {
+				throw new UnsupportedOperationException("Unable to create virtual threads", e);
+			}
+		};
+	}
+
+	/**
+	 * Selects the execution from {@link #EXECUTION_PROPERTY} and
+	 * {@link #PARALLELISM_PROPERTY}; {@code fixed} with 2 threads by default.
+	 * Falls back to {@code fixed} if virtual threads are requested but not
+	 * supported.
+	 *
+	 * @return the execution; not null
+	 */
+	static AIExecution fromProperties() {
+		String execution = System.getProperty(EXECUTION_PROPERTY, "fixed");
+		int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, 2);
+		switch (Objects.requireNonNull(execution)) {
+			case "fixed":
+				return fixed(parallelism);
+			case "work-stealing":
+				return workStealing(parallelism);
+			case "caller-runs":
+				return callerRuns();
+			case "virtual":
+				return virtualThreadsSupported() ? virtualThreads() : fixed(parallelism);
+			default:
+				throw new IllegalArgumentException("Unknown AI execution " + execution);
+		}
+	}
+
+	/**
+	 * @param name the thread name prefix; not null
+	 * @return a factory of numbered daemon threads
+	 */
+	static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + " #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * @param name the thread name prefix; not null
+	 * @return a factory of numbered daemon fork-join worker threads
+	 */
+	static ForkJoinWorkerThreadFactory daemonWorkers(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+					.newThread(pool);
+			thread.setName(name + " #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+}
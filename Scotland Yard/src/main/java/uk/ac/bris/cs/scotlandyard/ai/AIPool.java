@@ -3,14 +3,22 @@ package uk.ac.bris.cs.scotlandyard.ai;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -26,39 +34,66 @@ import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.Player;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
 
 /**
  * <b> Not a public API, do not use!</b> <br>
  * Internal pooling mechanism for AIs. AIs that are on the same group will share
- * a common GameFactory.
- * 
+ * a common GameFactory. <br>
+ * Every group runs its players on its own executor created by an
+ * {@link AIExecution} and times them out on its own scheduler, moves still
+ * running when they time out or when the game is over are interrupted and
+ * {@link #terminate()} shuts the executors down, so one runaway AI cannot
+ * starve or delay the AIs of other games.
+ *
  * @param <G> the group, must be stable with proper {@link Object#hashCode()}
  *        and {@link Object#equals(Object)}
  */
 public class AIPool<G> {
 
+	private static final AtomicInteger POOLS = new AtomicInteger();
+
 	private final VisualiserSurface surface;
 	private final Consumer<Throwable> exceptionHandler;
+	private final AIExecution execution;
 	private final Map<G, AIGroup> groups = new HashMap<>();
+	private final String name = "AI pool " + POOLS.incrementAndGet();
 
 	public AIPool(VisualiserSurface surface, Consumer<Throwable> exceptionHandler) {
+		this(surface, exceptionHandler, AIExecution.fromProperties());
+	}
+
+	/**
+	 * @param surface the surface for visualisers
+	 * @param exceptionHandler receives exceptions thrown by AIs
+	 * @param execution how moves are run; not null
+	 */
+	public AIPool(VisualiserSurface surface, Consumer<Throwable> exceptionHandler,
+			AIExecution execution) {
 		this.surface = surface;
 		this.exceptionHandler = exceptionHandler;
+		this.execution = Objects.requireNonNull(execution);
 	}
 
 	public void addToGroup(G group, Colour colour, AI ai) {
-		groups.computeIfAbsent(group, g -> new AIGroup()).add(colour, ai);
+		groups.computeIfAbsent(group, g -> new AIGroup(String.valueOf(g))).add(colour, ai);
 	}
 
-	public void initialise(ResourceManager manager, ScotlandYardGame game) {
+	public void initialise(ResourceManager manager, ScotlandYardGame game, Duration timeout) {
 		groups.values().forEach(group -> {
 			try {
-				group.initialise(manager, game);
+				group.initialise(manager, game, timeout);
 			} catch (Exception e) {
 				e.printStackTrace();
 				exceptionHandler.accept(e);
 			}
 		});
+		game.registerSpectator(new Spectator() {
+			@Override
+			public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+				cancel();
+			}
+		});
 	}
 
 	public Optional<Player> createPlayer(Colour colour) {
@@ -73,6 +108,13 @@ public class AIPool<G> {
 		return Optional.of(created.get(0));
 	}
 
+	/**
+	 * Interrupts every move still being computed, their results are discarded
+	 */
+	public void cancel() {
+		groups.values().forEach(AIGroup::cancel);
+	}
+
 	public void terminate() {
 		groups.values().forEach((group) -> {
 			try {
@@ -96,23 +138,65 @@ public class AIPool<G> {
 
 		private final Map<Colour, AI> ais = new HashMap<>();
 		private Map<AI, PlayerFactory> factories = new HashMap<>();
+		private final Set<Task> running = ConcurrentHashMap.newKeySet();
+		// moves of players that returned without answering yet
+		private final Set<AnytimeMove> pending = ConcurrentHashMap.newKeySet();
+		private final List<VisualiserBuffer> buffers = new ArrayList<>();
+		private final ExecutorService executor;
+		// commits the latest proposals, which plays them on the model
+		private final ScheduledThreadPoolExecutor deadlines;
+		private Duration timeout = Duration.ofMinutes(1);
+
+		AIGroup(String group) {
+			this.executor = execution.create(name + " " + group);
+			this.deadlines = new ScheduledThreadPoolExecutor(1,
+					AIExecution.daemonThreads(name + " " + group + " deadlines"));
+			deadlines.setRemoveOnCancelPolicy(true);
+		}
 
 		void add(Colour colour, AI ai) {
 			ais.put(colour, ai);
 		}
 
-		void initialise(ResourceManager manager, ScotlandYardGame game) throws Exception {
+		void initialise(ResourceManager manager, ScotlandYardGame game, Duration timeout)
+				throws Exception {
+			this.timeout = timeout;
 			factories = ais.values().stream()
 					.distinct()
 					.collect(toMap(Function.identity(), AI::instantiate));
 			factories.forEach((ai, factory) -> {
 				factory.createSpectators(game).forEach(game::registerSpectator);
+				factory.setMoveTimeout(timeout);
 				Pane pane = surface.onCreate(ai);
-				factory.ready(() -> pane, manager);
+				VisualiserBuffer buffer = new VisualiserBuffer(pane, manager);
+				buffers.add(buffer);
+				factory.ready(new Visualiser() {
+					@Override
+					public Pane surface() {
+						return pane;
+					}
+
+					@Override
+					public VisualiserBuffer buffer() {
+						return buffer;
+					}
+				}, manager);
 			});
 		}
 
+		void cancel() {
+			// caller-runs tasks run on the thread cancelling them
+			boolean interrupt = execution.enforcesDeadlines();
+			running.forEach(task -> task.cancel(interrupt));
+			pending.forEach(AnytimeMove::cancel);
+			pending.clear();
+		}
+
 		void terminate() throws Exception {
+			cancel();
+			executor.shutdownNow();
+			deadlines.shutdownNow();
+			buffers.forEach(VisualiserBuffer::detach);
 			factories.values().forEach(PlayerFactory::finish);
 		}
 
@@ -121,21 +205,84 @@ public class AIPool<G> {
 			return Optional.of(
 					new ThreadedPlayer(
 							factories.get(ais.get(colour)).createPlayer(colour),
-							exceptionHandler));
+							this));
+		}
+
+		/**
+		 * Runs the body on this group's executor; once the limit passes the
+		 * latest proposal of the move is made and the body is interrupted. The
+		 * move may still be made after the body returns, until the limit
+		 * passes or the game is over
+		 */
+		void submit(Runnable body, Duration limit, AnytimeMove move) {
+			pending.removeIf(AnytimeMove::isCancelled);
+			Task task = new Task(() -> {
+				try {
+					body.run();
+				} catch (Throwable e) {
+					// interrupted after the limit or game over, nobody is waiting
+					boolean abandoned = move.isCancelled();
+					move.cancel();
+					if (!abandoned) {
+						e.printStackTrace();
+						exceptionHandler.accept(e);
+					}
+				}
+			}, move);
+			running.add(task);
+			try {
+				// scheduled first, caller-runs executors return when the move is done
+				if (execution.enforcesDeadlines()) task.limit = deadlines.schedule(() -> {
+					move.commitLatest();
+					task.cancel(true);
+					pending.remove(move);
+				}, limit.toNanos(), TimeUnit.NANOSECONDS);
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// the pool has been terminated
+				task.cancel(false);
+			}
+		}
+
+		private final class Task extends FutureTask<Void> {
+
+			private final AnytimeMove move;
+			private volatile ScheduledFuture<?> limit;
+
+			Task(Runnable body, AnytimeMove move) {
+				super(body, null);
+				this.move = move;
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				move.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+
+			@Override
+			protected void done() {
+				running.remove(this);
+				if (!move.isCancelled()) {
+					// answered later, the deadline still applies
+					pending.add(move);
+					return;
+				}
+				ScheduledFuture<?> limit = this.limit;
+				if (limit != null) limit.cancel(false);
+			}
 		}
 
 	}
 
 	static class ThreadedPlayer implements Player {
 
-		final static ExecutorService service = Executors.newWorkStealingPool();
-
 		private final Player player;
-		private final Consumer<Throwable> exceptionHandler;
+		private final AIPool<?>.AIGroup group;
 
-		private ThreadedPlayer(Player player, Consumer<Throwable> exceptionHandler) {
+		private ThreadedPlayer(Player player, AIPool<?>.AIGroup group) {
 			this.player = player;
-			this.exceptionHandler = exceptionHandler;
+			this.group = group;
 		}
 
 		@Override
@@ -143,15 +290,23 @@ public class AIPool<G> {
 				int location,
 				Set<Move> moves,
 				Consumer<Move> callback) {
-			service.submit((Callable<Void>) () -> {
-				try {
-					player.makeMove(view, location, ImmutableSet.copyOf(moves), callback);
-				} catch (Throwable e) {
-					e.printStackTrace();
-					exceptionHandler.accept(e);
-				}
-				return null;
-			});
+			Set<Move> copy = ImmutableSet.copyOf(moves);
+			if (player instanceof AnytimePlayer) {
+				Duration budget = AnytimeMove.budget(group.timeout);
+				AnytimeMove move = new AnytimeMove(copy, System.nanoTime() + budget.toNanos(),
+						callback);
+				// without a proposal at the deadline the game's own timeout applies
+				group.submit(() -> {
+					((AnytimePlayer) player).think(view, location, copy, move);
+					move.commitLatest();
+				}, budget, move);
+			} else {
+				// the player may answer from any thread after returning, moves
+				// made after the timeout are dropped
+				AnytimeMove move = new AnytimeMove(copy, callback);
+				group.submit(() -> player.makeMove(view, location, copy, move::commit),
+						group.timeout, move);
+			}
 		}
 	}
 
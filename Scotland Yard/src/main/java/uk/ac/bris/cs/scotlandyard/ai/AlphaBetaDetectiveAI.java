@@ -0,0 +1,108 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.ai.search.MrXBelief;
+import uk.ac.bris.cs.scotlandyard.ai.search.ParanoidSearch;
+import uk.ac.bris.cs.scotlandyard.ai.search.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.MapContextRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PassMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+
+/**
+ * Detectives that run a deterministic iterative-deepening alpha-beta search
+ * over the locations Mr X could be at(see {@link ParanoidSearch}). <br>
+ * Detectives are {@link AnytimePlayer}s: the best move of every completed
+ * depth is proposed and the search runs until the deadline of the move, or for
+ * {@link MonteCarloMrXAI#THINKING_TIME_PROPERTY} if that is set or there is no
+ * deadline. Given the same game and budget the same moves are played, which
+ * makes this a baseline for other AIs. Mr X falls back to random moves.
+ */
+@ManagedAI(value = "Alpha-Beta Detectives")
+public class AlphaBetaDetectiveAI implements PlayerFactory {
+
+	/**
+	 * Maximum search depth in rotations(every player moves once)
+	 */
+	private static final int MAX_ROTATIONS = 4;
+
+	private final Random random = new Random();
+	private volatile Duration timeout = Duration.ofMinutes(1);
+	private volatile MrXBelief belief;
+
+	@Override
+	public void setMoveTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public List<Spectator> createSpectators(ScotlandYardView view) {
+		belief = new MrXBelief(view, MapContextRegistry.shared().contextOf(view.getGraph()));
+		return Collections.singletonList(belief);
+	}
+
+	@Override
+	public Player createPlayer(Colour colour) {
+		if (colour.isMrX()) return (view, location, moves, callback) -> callback
+				.accept(new ArrayList<>(moves).get(random.nextInt(moves.size())));
+		return (AnytimePlayer) this::think;
+	}
+
+	private void think(ScotlandYardView view, int location, Set<Move> moves,
+			AnytimeMove move) {
+		long budget = move.remainingNanos();
+		if (!move.hasDeadline()
+				|| System.getProperty(MonteCarloMrXAI.THINKING_TIME_PROPERTY) != null)
+			budget = Math.min(budget,
+					TimeUnit.MILLISECONDS.toNanos(MonteCarloMrXAI.thinkingTime(timeout)));
+		long deadline = System.nanoTime() + budget;
+		// in case not even the move ordering is done in time
+		move.propose(moves.iterator().next());
+		if (moves.size() == 1) return;
+		MapContext context = MapContextRegistry.shared().contextOf(view.getGraph());
+		MrXBelief belief = this.belief;
+		// not registered as a spectator, all we know is what the view tells
+		if (belief == null) belief = new MrXBelief(view, context);
+
+		List<Colour> detectives = new ArrayList<>(view.getPlayers());
+		detectives.remove(Colour.Black);
+		int[] locations = new int[detectives.size()];
+		int[][] tickets = new int[detectives.size()][Ticket.values().length];
+		for (int i = 0; i < detectives.size(); i++) {
+			locations[i] = context.indexOf(view.getPlayerLocation(detectives.get(i)));
+			for (Ticket ticket : Ticket.values())
+				tickets[i][ticket.ordinal()] = view.getPlayerTickets(detectives.get(i), ticket);
+		}
+		int[] mrXTickets = new int[Ticket.values().length];
+		for (Ticket ticket : Ticket.values())
+			mrXTickets[ticket.ordinal()] = view.getPlayerTickets(Colour.Black, ticket);
+
+		int[] candidates = belief.candidates();
+		int rounds = view.getRounds().size() - view.getCurrentRound();
+		ParanoidSearch search = new ParanoidSearch(context, locations, tickets, mrXTickets,
+				candidates, detectives.indexOf(view.getCurrentPlayer()), rounds,
+				MAX_ROTATIONS * (detectives.size() + 1));
+		Colour colour = view.getCurrentPlayer();
+		search.search(deadline, best -> {
+			Move chosen = best == SearchState.PASS ? new PassMove(colour)
+					: new TicketMove(colour, Ticket.values()[SearchState.ticket(best)],
+							context.nodeValue(SearchState.destination(best)));
+			if (moves.contains(chosen)) move.propose(chosen);
+			return !move.isCancelled();
+		});
+	}
+
+}
@@ -0,0 +1,160 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+/**
+ * The move an {@link AnytimePlayer} is working on. <br>
+ * The player publishes its best move so far with {@link #propose(Move)} as
+ * often as it likes and may finish early with {@link #commit(Move)}. When the
+ * deadline passes the framework commits the latest proposal on the player's
+ * behalf and the move becomes cancelled; players should poll
+ * {@link #isCancelled()} and stop working once it returns true. <br>
+ * The callback is invoked at most once. This class is thread safe.
+ */
+public final class AnytimeMove {
+
+	private static final Duration MIN_MARGIN = Duration.ofMillis(250);
+
+	private final Set<Move> moves;
+	private final Consumer<Move> callback;
+	private final boolean bounded;
+	private final long deadline;
+
+	private Move latest;
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a move that must be made before a deadline
+	 *
+	 * @param moves the valid moves; not null
+	 * @param deadline the deadline in {@link System#nanoTime()} terms
+	 * @param callback receives the committed move; not null
+	 */
+	public AnytimeMove(Set<Move> moves, long deadline, Consumer<Move> callback) {
+		this(moves, true, deadline, callback);
+	}
+
+	/**
+	 * Creates a move without a deadline, it is made once the player commits
+	 * or {@link #commitLatest()} is called
+	 *
+	 * @param moves the valid moves; not null
+	 * @param callback receives the committed move; not null
+	 */
+	public AnytimeMove(Set<Move> moves, Consumer<Move> callback) {
+		this(moves, false, 0, callback);
+	}
+
+	private AnytimeMove(Set<Move> moves, boolean bounded, long deadline,
+			Consumer<Move> callback) {
+		this.moves = Objects.requireNonNull(moves);
+		this.callback = Objects.requireNonNull(callback);
+		this.bounded = bounded;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * The time a player may spend on a move, leaving a margin of a tenth of
+	 * the timeout(at least 250ms) for the move to reach the game
+	 *
+	 * @param timeout the move timeout; not null
+	 * @return the budget, never negative
+	 */
+	public static Duration budget(Duration timeout) {
+		Duration tenth = timeout.dividedBy(10);
+		Duration budget = timeout.minus(tenth.compareTo(MIN_MARGIN) > 0 ? tenth : MIN_MARGIN);
+		return budget.isNegative() ? Duration.ZERO : budget;
+	}
+
+	/**
+	 * @return whether this move has a deadline
+	 */
+	public boolean hasDeadline() {
+		return bounded;
+	}
+
+	/**
+	 * @return nanoseconds left until the deadline, negative once it passed or
+	 *         {@link Long#MAX_VALUE} without a deadline
+	 */
+	public long remainingNanos() {
+		return bounded ? deadline - System.nanoTime() : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Publishes the best move found so far, ignored once the move is cancelled
+	 *
+	 * @param move one of the valid moves; not null
+	 * @throws IllegalArgumentException if the move is not valid
+	 */
+	public void propose(Move move) {
+		if (!moves.contains(Objects.requireNonNull(move)))
+			throw new IllegalArgumentException("Invalid move " + move);
+		synchronized (this) {
+			if (!cancelled) latest = move;
+		}
+	}
+
+	/**
+	 * Makes the move now, ignored once the move is cancelled
+	 *
+	 * @param move one of the valid moves; not null
+	 * @throws IllegalArgumentException if the move is not valid
+	 */
+	public void commit(Move move) {
+		propose(move);
+		commitLatest();
+	}
+
+	/**
+	 * @return the latest proposal, if any
+	 */
+	public synchronized Optional<Move> latest() {
+		return Optional.ofNullable(latest);
+	}
+
+	/**
+	 * @return true once the move has been made or abandoned; the player should
+	 *         stop working on it
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Makes the latest proposal and cancels this move, does nothing if it is
+	 * already cancelled
+	 *
+	 * @return true if a move was made
+	 */
+	boolean commitLatest() {
+		Move move;
+		synchronized (this) {
+			if (cancelled) return false;
+			cancelled = true;
+			move = latest;
+		}
+		if (move == null) return false;
+		callback.accept(move);
+		return true;
+	}
+
+	/**
+	 * Abandons this move without making it, e.g. when the game is over
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	@Override
+	public String toString() {
+		return "AnytimeMove{latest=" + latest().orElse(null) + ", cancelled=" + cancelled + "}";
+	}
+
+}
@@ -0,0 +1,46 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+
+/**
+ * A player that keeps improving its move until told to stop. <br>
+ * Instead of choosing a move once it publishes provisional moves through
+ * {@link AnytimeMove}. Players created by a {@link PlayerFactory} that
+ * implement this interface are given a deadline derived from the move timeout
+ * and their latest proposal is made when it passes, so they can use the whole
+ * budget without risking the game.
+ */
+@FunctionalInterface
+public interface AnytimePlayer extends Player {
+
+	/**
+	 * Called when the player is required to make a move, may return before or
+	 * after the move is made. Any proposal left when this method returns is
+	 * made.
+	 *
+	 * @param view a view of the current game, see
+	 *        {@link Player#makeMove(ScotlandYardView, int, Set, Consumer)}
+	 * @param location the location of the player
+	 * @param moves valid moves the player can make; never empty and never null
+	 * @param move the move to propose to; never null
+	 */
+	void think(ScotlandYardView view, int location, Set<Move> moves, AnytimeMove move);
+
+	/**
+	 * Thinks without a deadline and makes the latest proposal once
+	 * {@link #think(ScotlandYardView, int, Set, AnytimeMove)} returns
+	 */
+	@Override
+	default void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+			Consumer<Move> callback) {
+		AnytimeMove move = new AnytimeMove(moves, callback);
+		think(view, location, moves, move);
+		move.commitLatest();
+	}
+
+}
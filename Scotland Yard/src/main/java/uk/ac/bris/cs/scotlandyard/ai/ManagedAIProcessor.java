@@ -0,0 +1,102 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor writing the {@link AI#INDEX} of all {@link ManagedAI}
+ * classes at compile time, so {@link AI#scanClasspath()} does not have to
+ * scan the classpath at runtime. <br>
+ * Classes that are not public top-level {@link PlayerFactory}s are reported as
+ * errors. Entries of an existing index are kept(e.g. for incremental builds),
+ * the runtime skips those that no longer exist or are no longer annotated.
+ * <br>
+ * The processor is registered as a service, so jars of AIs compiled against
+ * this project are indexed without any configuration.
+ */
+@SupportedAnnotationTypes("uk.ac.bris.cs.scotlandyard.ai.ManagedAI")
+public class ManagedAIProcessor extends AbstractProcessor {
+
+	private final Set<String> classes = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		if (round.processingOver()) {
+			if (!classes.isEmpty()) writeIndex();
+			return true;
+		}
+		TypeElement factory = processingEnv.getElementUtils()
+				.getTypeElement(PlayerFactory.class.getName());
+		for (Element element : round.getElementsAnnotatedWith(ManagedAI.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@ManagedAI is only allowed on classes");
+				continue;
+			}
+			TypeElement type = (TypeElement) element;
+			TypeMirror erased = processingEnv.getTypeUtils().erasure(type.asType());
+			if (type.getNestingKind() != NestingKind.TOP_LEVEL
+					|| !type.getModifiers().contains(Modifier.PUBLIC)
+					|| type.getModifiers().contains(Modifier.ABSTRACT))
+				error(element, "@ManagedAI classes must be public, concrete and top-level");
+			else if (factory != null && !processingEnv.getTypeUtils().isAssignable(erased,
+					factory.asType()))
+				error(element, "@ManagedAI classes must implement " + PlayerFactory.class.getName());
+			else classes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+		}
+		// nothing else processes @ManagedAI
+		return true;
+	}
+
+	private void writeIndex() {
+		Filer filer = processingEnv.getFiler();
+		try {
+			FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", AI.INDEX);
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+				reader.lines().map(String::trim).filter(l -> !l.isEmpty()).forEach(classes::add);
+			}
+		} catch (IOException e) {
+			// no index yet
+		}
+		try {
+			FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", AI.INDEX);
+			try (Writer writer = index.openWriter()) {
+				for (String name : classes)
+					writer.write(name + "\n");
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Unable to write " + AI.INDEX + ": " + e);
+		}
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+
+}
@@ -0,0 +1,122 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.ai.search.DistanceRolloutPolicy;
+import uk.ac.bris.cs.scotlandyard.ai.search.MonteCarloTree;
+import uk.ac.bris.cs.scotlandyard.ai.search.MrXBelief;
+import uk.ac.bris.cs.scotlandyard.ai.search.ParallelSearch;
+import uk.ac.bris.cs.scotlandyard.ai.search.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.MapContextRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+
+/**
+ * Detectives that run information set Monte Carlo tree search. <br>
+ * Every iteration places Mr X on a node sampled from the locations he could
+ * be at(see {@link MrXBelief}) while the tree, and thus its statistics, is
+ * shared between those samples. Trees are grown in parallel, one per core.
+ * <br>
+ * All detectives created by the same instance act as one team: the first
+ * detective to move in a round searches the moves of every detective still to
+ * move before Mr X and the others play their part of that plan. Mr X falls
+ * back to random moves. Thinking time is limited as in {@link MonteCarloMrXAI}.
+ */
+@ManagedAI(value = "ISMCTS Detectives")
+public class MonteCarloDetectiveAI implements PlayerFactory {
+
+	private static final int MAX_NODES_PER_TREE = 1 << 20;
+	private static final double ROLLOUT_EPSILON = 0.25;
+
+	private final Random random = new Random();
+	private final ForkJoinPool search = ParallelSearch.newPool("ISMCTS Detectives search");
+	private volatile Duration timeout = Duration.ofMinutes(1);
+	private volatile MrXBelief belief;
+
+	private final Map<Colour, Move> plan = new EnumMap<>(Colour.class);
+	private int planRound = -1;
+
+	@Override
+	public void setMoveTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void finish() {
+		search.shutdownNow();
+	}
+
+	@Override
+	public List<Spectator> createSpectators(ScotlandYardView view) {
+		belief = new MrXBelief(view, MapContextRegistry.shared().contextOf(view.getGraph()));
+		return Collections.singletonList(belief);
+	}
+
+	@Override
+	public Player createPlayer(Colour colour) {
+		if (colour.isMrX()) return (view, location, moves, callback) -> callback
+				.accept(new ArrayList<>(moves).get(random.nextInt(moves.size())));
+		return this::makeMove;
+	}
+
+	private void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+			Consumer<Move> callback) {
+		long deadline = System.nanoTime()
+				+ MonteCarloMrXAI.thinkingTime(timeout) * 1_000_000;
+		Colour colour = view.getCurrentPlayer();
+		synchronized (plan) {
+			Move planned = planRound == view.getCurrentRound() ? plan.remove(colour) : null;
+			if (planned != null && moves.contains(planned)) {
+				callback.accept(planned);
+				return;
+			}
+		}
+		if (moves.size() == 1) {
+			callback.accept(moves.iterator().next());
+			return;
+		}
+
+		MapContext context = MapContextRegistry.shared().contextOf(view.getGraph());
+		MrXBelief belief = this.belief;
+		// not registered as a spectator, all we know is what the view tells
+		if (belief == null) belief = new MrXBelief(view, context);
+		int[] candidates = belief.candidates();
+		SearchState root = SearchState.fromView(view, context, context.nodeValue(candidates[0]));
+		DistanceRolloutPolicy policy = new DistanceRolloutPolicy(context, ROLLOUT_EPSILON);
+		MonteCarloTree.Determiniser determiniser = (state, random) -> state
+				.placeMrX(candidates[random.nextInt(candidates.length)]);
+		long seed = random.nextLong();
+		int[] variation = root.isOver() ? new int[0]
+				: ParallelSearch.principalVariation(ParallelSearch.run(search,
+						worker -> new MonteCarloTree(root, policy, determiniser, seed + worker,
+								MAX_NODES_PER_TREE),
+						deadline), root.playerCount() - root.current());
+
+		Move chosen = variation.length == 0 ? null : root.toMove(variation[0]);
+		boolean planned = chosen != null && moves.contains(chosen);
+		if (!planned) chosen = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+		synchronized (plan) {
+			plan.clear();
+			planRound = view.getCurrentRound();
+			for (int i = 1; planned && i < variation.length; i++) {
+				Move move = root.toMove(variation[i], root.current() + i);
+				plan.put(move.colour(), move);
+			}
+		}
+		callback.accept(chosen);
+	}
+
+}
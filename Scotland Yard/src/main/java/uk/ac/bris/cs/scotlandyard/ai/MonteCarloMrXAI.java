@@ -0,0 +1,96 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.ai.search.DistanceRolloutPolicy;
+import uk.ac.bris.cs.scotlandyard.ai.search.MonteCarloTree;
+import uk.ac.bris.cs.scotlandyard.ai.search.ParallelSearch;
+import uk.ac.bris.cs.scotlandyard.ai.search.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.MapContextRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+
+/**
+ * A Mr X that runs root parallel Monte Carlo tree search over all his moves,
+ * double and secret moves included, with one tree per core. <br>
+ * Each move takes at most {@link #THINKING_TIME_PROPERTY} milliseconds(5s by
+ * default) and always finishes well within the game's move timeout. Detective
+ * colours fall back to random moves.
+ */
+@ManagedAI(value = "MCTS Mr X")
+public class MonteCarloMrXAI implements PlayerFactory {
+
+	/**
+	 * System property overriding the maximum thinking time per move, in
+	 * milliseconds
+	 */
+	public static final String THINKING_TIME_PROPERTY = "scotlandyard.ai.mcts.think";
+
+	private static final long DEFAULT_THINKING_TIME = 5000;
+	private static final int MAX_NODES_PER_TREE = 1 << 20;
+	private static final double ROLLOUT_EPSILON = 0.25;
+
+	private final Random random = new Random();
+	private final ForkJoinPool search = ParallelSearch.newPool("MCTS Mr X search");
+	private volatile Duration timeout = Duration.ofMinutes(1);
+
+	@Override
+	public void setMoveTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void finish() {
+		search.shutdownNow();
+	}
+
+	@Override
+	public Player createPlayer(Colour colour) {
+		if (colour.isDetective()) return (view, location, moves, callback) -> callback
+				.accept(new ArrayList<>(moves).get(random.nextInt(moves.size())));
+		return this::makeMove;
+	}
+
+	/**
+	 * @param timeout the move timeout
+	 * @return the time a move may take in milliseconds, the
+	 *         {@link AnytimeMove#budget(Duration)} capped by
+	 *         {@link #THINKING_TIME_PROPERTY}
+	 */
+	static long thinkingTime(Duration timeout) {
+		return Math.min(AnytimeMove.budget(timeout).toMillis(),
+				Long.getLong(THINKING_TIME_PROPERTY, DEFAULT_THINKING_TIME));
+	}
+
+	private void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+			Consumer<Move> callback) {
+		long deadline = System.nanoTime() + thinkingTime(timeout) * 1_000_000;
+		MapContext context = MapContextRegistry.shared().contextOf(view.getGraph());
+		SearchState root = SearchState.fromView(view, context, location);
+		if (moves.size() == 1 || root.isOver()) {
+			callback.accept(moves.iterator().next());
+			return;
+		}
+		DistanceRolloutPolicy policy = new DistanceRolloutPolicy(context, ROLLOUT_EPSILON);
+		long seed = random.nextLong();
+		int[] best = ParallelSearch.principalVariation(ParallelSearch.run(search,
+				worker -> new MonteCarloTree(root, policy, seed + worker, MAX_NODES_PER_TREE),
+				deadline), 1);
+
+		Move chosen = best.length == 0 ? null : root.toMove(best[0]);
+		// the search is a different implementation of the rules, never trust
+		// it with an illegal move
+		if (chosen == null || !moves.contains(chosen))
+			chosen = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+		callback.accept(chosen);
+	}
+
+}
@@ -1,5 +1,6 @@
 package uk.ac.bris.cs.scotlandyard.ai;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -27,7 +28,8 @@ public interface PlayerFactory {
 	 * Create a player with the given colour<br>
 	 * The returned player's
 	 * {@link Player#makeMove(ScotlandYardView, int, Set, Consumer)} will be
-	 * executed on a separate thread.
+	 * executed on a separate thread. Return an {@link AnytimePlayer} to publish
+	 * provisional moves until a deadline instead.
 	 * 
 	 * @param colour the colour; never null
 	 * @return a player
@@ -45,6 +47,16 @@ public interface PlayerFactory {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Called before {@link #ready(Visualiser, ResourceProvider)} with the time
+	 * a player has to make each move; players that take longer lose the game
+	 * <br>
+	 * Defaults to no-op
+	 *
+	 * @param timeout the per-move timeout; never null
+	 */
+	default void setMoveTimeout(Duration timeout) {}
+
 	/**
 	 * Called when the game is about to start(i.e. before the first
 	 * {@link ScotlandYardGame#startRotate()}) <br>
@@ -17,4 +17,19 @@ public interface Visualiser {
 	 */
 	Pane surface();
 
+	/**
+	 * Drawing commands that can be recorded from any thread and are shown on
+	 * {@link #surface()} once committed, without going through
+	 * {@link javafx.application.Platform#runLater(Runnable)} for every
+	 * primitive. <br>
+	 * The default returns {@link VisualiserBuffer#discarding()} so existing
+	 * implementations keep compiling; the visualisers handed out by the game
+	 * return a buffer that draws on their surface
+	 *
+	 * @return the buffer of this visualiser; never null
+	 */
+	default VisualiserBuffer buffer() {
+		return VisualiserBuffer.discarding();
+	}
+
 }
@@ -0,0 +1,248 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import uk.ac.bris.cs.scotlandyard.ui.HeatmapLayer;
+
+/**
+ * Double-buffered drawing commands for a {@link Visualiser}, safe to use from
+ * any thread <br>
+ * Commands are recorded into a back frame that nobody else sees. A
+ * {@link #commit()} publishes it as the front frame and starts an empty back
+ * frame. The front frame is drawn onto the visualiser surface on the JavaFX
+ * thread, at most once per pending {@link Platform#runLater(Runnable)}, so
+ * frames committed faster than the screen refreshes are skipped. Each frame
+ * replaces the previous one completely. <br>
+ * Commands taking a node are placed at the node's map coordinate. Several
+ * threads may record at the same time, their commands end up interleaved in
+ * the same frame. Once detached, and always for {@link #discarding()},
+ * commands are dropped as they are recorded.
+ */
+public final class VisualiserBuffer {
+
+	private static final class Frame {
+
+		final List<Consumer<GraphicsContext>> commands = new ArrayList<>();
+		float[] heat;
+		double maxX, maxY;
+
+		void extend(double x, double y) {
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+	}
+
+	private static final VisualiserBuffer DISCARDING = new VisualiserBuffer();
+
+	private final Pane pane;
+	private final ResourceProvider provider;
+	private final Executor fxThread;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private Frame back = new Frame();
+	private volatile Frame front;
+	private volatile boolean detached;
+	private volatile boolean used;
+
+	// only touched on the FX thread
+	private Canvas canvas;
+	private HeatmapLayer heatmap;
+
+	VisualiserBuffer(Pane pane, ResourceProvider provider) {
+		this(pane, provider, Platform::runLater);
+	}
+
+	VisualiserBuffer(Pane pane, ResourceProvider provider, Executor fxThread) {
+		this.pane = requireNonNull(pane);
+		this.provider = requireNonNull(provider);
+		this.fxThread = requireNonNull(fxThread);
+	}
+
+	private VisualiserBuffer() {
+		this.pane = null;
+		this.provider = null;
+		this.fxThread = null;
+		this.detached = true;
+	}
+
+	/**
+	 * @return a shared buffer that accepts every command and never shows
+	 *         anything, for visualisers that have no buffer of their own
+	 */
+	public static VisualiserBuffer discarding() {
+		return DISCARDING;
+	}
+
+	public synchronized VisualiserBuffer line(double x1, double y1, double x2, double y2,
+			Color colour, double width) {
+		if (detached) return this;
+		back.extend(Math.max(x1, x2) + width, Math.max(y1, y2) + width);
+		back.commands.add(gc -> {
+			gc.setStroke(colour);
+			gc.setLineWidth(width);
+			gc.strokeLine(x1, y1, x2, y2);
+		});
+		return this;
+	}
+
+	public synchronized VisualiserBuffer circle(double x, double y, double radius, Color fill) {
+		if (detached) return this;
+		back.extend(x + radius, y + radius);
+		back.commands.add(gc -> {
+			gc.setFill(fill);
+			gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+		});
+		return this;
+	}
+
+	public synchronized VisualiserBuffer label(double x, double y, String text, Color colour) {
+		requireNonNull(text);
+		if (detached) return this;
+		back.extend(x + 8 * text.length(), y + 16);
+		back.commands.add(gc -> {
+			gc.setFill(colour);
+			gc.fillText(text, x, y);
+		});
+		return this;
+	}
+
+	/**
+	 * Draws a path through the given nodes, e.g. a principal variation; nodes
+	 * without a coordinate are skipped
+	 */
+	public VisualiserBuffer path(Color colour, double width, int... nodes) {
+		if (detached) return this;
+		double[] xs = new double[nodes.length];
+		double[] ys = new double[nodes.length];
+		int size = 0;
+		for (int node : nodes) {
+			Point2D point = provider.coordinateAtNode(node);
+			if (point == null) continue;
+			xs[size] = point.getX();
+			ys[size] = point.getY();
+			size++;
+		}
+		if (size < 2) return this;
+		double[] px = Arrays.copyOf(xs, size);
+		double[] py = Arrays.copyOf(ys, size);
+		synchronized (this) {
+			back.extend(Arrays.stream(px).max().getAsDouble() + width,
+					Arrays.stream(py).max().getAsDouble() + width);
+			back.commands.add(gc -> {
+				gc.setStroke(colour);
+				gc.setLineWidth(width);
+				gc.setLineCap(StrokeLineCap.ROUND);
+				gc.setLineJoin(StrokeLineJoin.ROUND);
+				gc.strokePolyline(px, py, px.length);
+			});
+		}
+		return this;
+	}
+
+	public VisualiserBuffer circle(int node, double radius, Color fill) {
+		if (detached) return this;
+		Point2D point = provider.coordinateAtNode(node);
+		return point == null ? this : circle(point.getX(), point.getY(), radius, fill);
+	}
+
+	public VisualiserBuffer label(int node, String text, Color colour) {
+		if (detached) return this;
+		Point2D point = provider.coordinateAtNode(node);
+		return point == null ? this : label(point.getX(), point.getY(), text, colour);
+	}
+
+	/**
+	 * Shows a value per node as a heatmap below the other commands
+	 *
+	 * @param values value in [0, 1] per node, indexed by node; copied
+	 */
+	public synchronized VisualiserBuffer heat(float[] values) {
+		if (detached) return this;
+		back.heat = values.clone();
+		return this;
+	}
+
+	/**
+	 * Publishes everything recorded since the last commit, replacing what is
+	 * currently shown
+	 */
+	public void commit() {
+		synchronized (this) {
+			front = back;
+			back = new Frame();
+		}
+		used = true;
+		if (!detached && scheduled.compareAndSet(false, true)) fxThread.execute(this::flush);
+	}
+
+	/**
+	 * Shows nothing; discards anything recorded but not yet committed
+	 */
+	public void clear() {
+		synchronized (this) {
+			back = new Frame();
+		}
+		commit();
+	}
+
+	/**
+	 * Stops drawing and removes everything from the surface
+	 */
+	void detach() {
+		if (detached) return;
+		detached = true;
+		// nothing to remove and maybe no FX toolkit if nothing was committed
+		if (!used) return;
+		if (Platform.isFxApplicationThread()) removeNodes();
+		else fxThread.execute(this::removeNodes);
+	}
+
+	private void removeNodes() {
+		if (canvas != null) pane.getChildren().remove(canvas);
+		if (heatmap != null) pane.getChildren().remove(heatmap);
+		canvas = null;
+		heatmap = null;
+	}
+
+	private void flush() {
+		scheduled.set(false);
+		Frame frame = front;
+		if (detached || frame == null) return;
+		if (frame.heat != null && heatmap == null) {
+			heatmap = new HeatmapLayer(provider);
+			pane.getChildren().add(0, heatmap);
+		}
+		if (heatmap != null) heatmap.setValues(frame.heat == null ? new float[0] : frame.heat);
+		if (canvas == null) {
+			canvas = new Canvas();
+			canvas.setMouseTransparent(true);
+			pane.getChildren().add(canvas);
+		}
+		double width = Math.max(pane.getWidth(), frame.maxX);
+		double height = Math.max(pane.getHeight(), frame.maxY);
+		if (canvas.getWidth() < width) canvas.setWidth(width);
+		if (canvas.getHeight() < height) canvas.setHeight(height);
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		for (Consumer<GraphicsContext> command : frame.commands) {
+			gc.save();
+			command.accept(gc);
+			gc.restore();
+		}
+	}
+
+}
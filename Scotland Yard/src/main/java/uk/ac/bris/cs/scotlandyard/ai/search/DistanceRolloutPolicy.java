@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.gamekit.matrix.ShortSquareMatrix;
+import uk.ac.bris.cs.scotlandyard.ai.search.MonteCarloTree.RolloutPolicy;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+
+/**
+ * An epsilon-greedy rollout policy based on hop distances
+ * ({@link MapContext#DISTANCES}): detectives close in on Mr X's location in
+ * the state and Mr X maximises his distance to the nearest detective. With
+ * probability {@code epsilon} a uniformly random move is played instead.
+ */
+public final class DistanceRolloutPolicy implements RolloutPolicy {
+
+	private final ShortSquareMatrix distances;
+	private final int nodes;
+	private final double epsilon;
+
+	/**
+	 * Creates a new policy
+	 *
+	 * @param context the map; not null
+	 * @param epsilon the probability of playing a random move, in [0, 1]
+	 */
+	public DistanceRolloutPolicy(MapContext context, double epsilon) {
+		if (epsilon < 0 || epsilon > 1)
+			throw new IllegalArgumentException("epsilon must be in [0, 1], got " + epsilon);
+		this.distances = context.get(MapContext.DISTANCES);
+		this.nodes = context.nodeCount();
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	public int choose(SearchState state, int[] moves, int count, SplittableRandom random) {
+		if (count == 1 || random.nextDouble() < epsilon) return random.nextInt(count);
+		boolean mrX = state.current() == 0;
+		int best = 0;
+		int bestScore = Integer.MIN_VALUE;
+		int ties = 0;
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == SearchState.PASS) continue;
+			int destination = SearchState.finalDestination(moves[i]);
+			int score = mrX ? nearestDetective(state, destination)
+					: -distance(destination, state.location(0));
+			// reservoir sampling among equally good moves
+			if (score > bestScore) {
+				bestScore = score;
+				best = i;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private int nearestDetective(SearchState state, int node) {
+		int nearest = Integer.MAX_VALUE;
+		for (int player = 1; player < state.playerCount(); player++)
+			nearest = Math.min(nearest, distance(state.location(player), node));
+		return nearest;
+	}
+
+	private int distance(int from, int to) {
+		int distance = distances.getShort(from * nodes + to);
+		return distance < 0 ? nodes : distance;
+	}
+
+}
@@ -0,0 +1,301 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A single-threaded UCT search tree over a {@link SearchState}. <br>
+ * Nodes live in parallel primitive arrays indexed by node id, the children of
+ * a node occupy a contiguous id range. Rewards are kept from the point of view
+ * of the side(Mr X or the detectives) that played the move leading to the
+ * node. A leaf is expanded the second time it is reached; the root is
+ * expanded right away and is the only node that considers Mr X's double
+ * moves. <br>
+ * For searches with hidden information a {@link Determiniser} fixes the hidden
+ * part of the state at the start of every iteration, so statistics are shared
+ * between determinisations(information set MCTS). Mr X's moves are hidden from
+ * the detectives, hence such a tree only grows until Mr X's next move. <br>
+ * Run one tree per thread and combine the statistics for root parallelism,
+ * see {@link #child(int, int)}.
+ */
+public final class MonteCarloTree {
+
+	/**
+	 * Exploration constant of UCB1
+	 */
+	private static final double EXPLORATION = Math.sqrt(2);
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final SearchState root;
+	private final SearchState state;
+	private final RolloutPolicy policy;
+	private final Determiniser determiniser;
+	private final SplittableRandom random;
+	private final int maxNodes;
+	private final int[] moveBuffer;
+	private final int[] path;
+
+	private int size;
+	private int[] firstChild;
+	private int[] childCount;
+	private int[] moves;
+	private int[] visits;
+	private float[] rewards;
+	private boolean[] mrXMoved;
+
+	private long iterations;
+
+	/**
+	 * Creates a new tree
+	 *
+	 * @param root the state to search from, copied; not null and not over
+	 * @param policy the rollout policy; not null
+	 * @param seed the random seed
+	 * @param maxNodes the maximum number of nodes; once reached the tree stops
+	 *        growing but iterations continue
+	 */
+	public MonteCarloTree(SearchState root, RolloutPolicy policy, long seed, int maxNodes) {
+		this(root, policy, null, seed, maxNodes);
+	}
+
+	/**
+	 * Creates a new tree for a search with hidden information
+	 *
+	 * @param root the state to search from, copied; not null and not over
+	 * @param policy the rollout policy; not null
+	 * @param determiniser fixes the hidden part of the state in each
+	 *        iteration; null if there is no hidden information
+	 * @param seed the random seed
+	 * @param maxNodes the maximum number of nodes; once reached the tree stops
+	 *        growing but iterations continue
+	 */
+	public MonteCarloTree(SearchState root, RolloutPolicy policy, Determiniser determiniser,
+			long seed, int maxNodes) {
+		if (root.isOver()) throw new IllegalArgumentException("Game is already over");
+		this.root = new SearchState(root);
+		this.state = new SearchState(root);
+		this.policy = Objects.requireNonNull(policy);
+		this.determiniser = determiniser;
+		this.random = new SplittableRandom(seed);
+		this.maxNodes = maxNodes;
+		this.moveBuffer = new int[root.moveBufferSize()];
+		this.path = new int[root.rounds() * root.playerCount() * 2 + 2];
+		int capacity = Math.min(INITIAL_CAPACITY, maxNodes);
+		this.firstChild = new int[capacity];
+		this.childCount = new int[capacity];
+		this.moves = new int[capacity];
+		this.visits = new int[capacity];
+		this.rewards = new float[capacity];
+		this.mrXMoved = new boolean[capacity];
+		this.size = 1;
+		firstChild[0] = -1;
+		expand(0, true);
+	}
+
+	/**
+	 * Runs iterations until told to stop
+	 *
+	 * @param stop checked before every iteration; not null
+	 * @return this tree
+	 */
+	public MonteCarloTree search(BooleanSupplier stop) {
+		while (!stop.getAsBoolean())
+			iterate();
+		return this;
+	}
+
+	/**
+	 * Runs one selection, expansion, simulation and back propagation pass
+	 */
+	public void iterate() {
+		state.copyFrom(root);
+		if (determiniser != null) determiniser.determinise(state, random);
+		int depth = 0;
+		int node = 0;
+		path[depth++] = node;
+		while (!state.isOver()) {
+			if (firstChild[node] < 0) {
+				if (visits[node] == 0 || !expand(node, false)) break;
+			}
+			node = select(node);
+			state.apply(moves[node]);
+			path[depth++] = node;
+		}
+		int winner = state.isOver() ? state.winner() : rollout();
+		float mrXReward = winner == SearchState.MRX ? 1 : 0;
+		for (int i = 0; i < depth; i++) {
+			int id = path[i];
+			visits[id]++;
+			rewards[id] += mrXMoved[id] ? mrXReward : 1 - mrXReward;
+		}
+		iterations++;
+	}
+
+	private int select(int node) {
+		int first = firstChild[node];
+		int count = childCount[node];
+		double logParent = Math.log(Math.max(1, visits[node]));
+		int best = first;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		int offset = random.nextInt(count);
+		for (int i = 0; i < count; i++) {
+			int child = first + (i + offset) % count;
+			int n = visits[child];
+			if (n == 0) return child;
+			double score = rewards[child] / n + EXPLORATION * Math.sqrt(logParent / n);
+			if (score > bestScore) {
+				bestScore = score;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	private boolean expand(int node, boolean doubles) {
+		if (node != 0 && determiniser != null && state.current() == 0) return false;
+		int count = state.generateMoves(moveBuffer, doubles);
+		if (count == 0 || size + count > maxNodes) return false;
+		ensureCapacity(size + count);
+		boolean mrX = state.current() == 0;
+		firstChild[node] = size;
+		childCount[node] = count;
+		for (int i = 0; i < count; i++) {
+			int child = size + i;
+			firstChild[child] = -1;
+			moves[child] = moveBuffer[i];
+			mrXMoved[child] = mrX;
+		}
+		size += count;
+		return true;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required <= moves.length) return;
+		int capacity = Math.min(maxNodes, Math.max(required, moves.length * 2));
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		childCount = Arrays.copyOf(childCount, capacity);
+		moves = Arrays.copyOf(moves, capacity);
+		visits = Arrays.copyOf(visits, capacity);
+		rewards = Arrays.copyOf(rewards, capacity);
+		mrXMoved = Arrays.copyOf(mrXMoved, capacity);
+	}
+
+	private int rollout() {
+		while (!state.isOver()) {
+			int count = state.generateMoves(moveBuffer, false);
+			state.apply(moveBuffer[policy.choose(state, moveBuffer, count, random)]);
+		}
+		return state.winner();
+	}
+
+	/**
+	 * @return number of completed iterations
+	 */
+	public long iterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return number of nodes in the tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param node the node id, 0 being the root
+	 * @return number of children of the node, 0 if it has not been expanded
+	 */
+	public int childCount(int node) {
+		return firstChild[node] < 0 ? 0 : childCount[node];
+	}
+
+	/**
+	 * @param node the node id
+	 * @param index index of the child, in [0, {@link #childCount(int)}).
+	 *        Children are in ascending move order so indices agree between
+	 *        trees built from the same state
+	 * @return the node id of the child
+	 */
+	public int child(int node, int index) {
+		return firstChild[node] + index;
+	}
+
+	/**
+	 * @param node the node id
+	 * @param move the encoded move
+	 * @return the node id of the child reached with the move or -1 if there is
+	 *         none
+	 */
+	public int childOf(int node, int move) {
+		if (firstChild[node] < 0) return -1;
+		int found = Arrays.binarySearch(moves, firstChild[node],
+				firstChild[node] + childCount[node], move);
+		return found < 0 ? -1 : found;
+	}
+
+	/**
+	 * @param node the node id, not the root
+	 * @return the encoded move leading to the node
+	 */
+	public int move(int node) {
+		return moves[node];
+	}
+
+	/**
+	 * @param node the node id
+	 * @return number of iterations through the node
+	 */
+	public int visits(int node) {
+		return visits[node];
+	}
+
+	/**
+	 * @param node the node id, not the root
+	 * @return total reward of the node for the side that played
+	 *         {@link #move(int)}
+	 */
+	public double reward(int node) {
+		return rewards[node];
+	}
+
+	/**
+	 * Fixes the hidden part of a state, e.g. Mr X's location
+	 */
+	@FunctionalInterface
+	public interface Determiniser {
+
+		/**
+		 * @param state the state to modify
+		 * @param random the random source of the calling thread
+		 */
+		void determinise(SearchState state, SplittableRandom random);
+	}
+
+	/**
+	 * Chooses a move during simulation
+	 */
+	@FunctionalInterface
+	public interface RolloutPolicy {
+
+		/**
+		 * @param state the current state, must not be modified
+		 * @param moves the moves available to the current player
+		 * @param count number of moves, &gt; 0
+		 * @param random the random source of the calling thread
+		 * @return index of the chosen move in moves
+		 */
+		int choose(SearchState state, int[] moves, int count, SplittableRandom random);
+
+		/**
+		 * @return a policy that picks uniformly at random
+		 */
+		static RolloutPolicy uniform() {
+			return (state, moves, count, random) -> random.nextInt(count);
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Tracks the set of nodes Mr X could be at, as seen by the detectives. <br>
+ * Every hidden move expands the set along the edges matching the ticket he
+ * used, a reveal round collapses it to one node and nodes occupied by
+ * detectives are removed. Before the first reveal every free node is a
+ * candidate. Register the instance as a spectator before the game starts. <br>
+ * This class is thread safe.
+ */
+public final class MrXBelief implements Spectator {
+
+	private final MapContext context;
+	private final List<Boolean> rounds;
+	private BitSet candidates;
+	private int legs;
+
+	/**
+	 * Creates a new belief for a game that has not started yet
+	 *
+	 * @param view the view of the game; not null
+	 * @param context the context of the game's map; not null
+	 */
+	public MrXBelief(ScotlandYardView view, MapContext context) {
+		this.context = Objects.requireNonNull(context);
+		this.rounds = view.getRounds();
+		this.legs = view.getCurrentRound();
+		this.candidates = everywhere(view);
+	}
+
+	private BitSet everywhere(ScotlandYardView view) {
+		BitSet all = new BitSet(context.nodeCount());
+		all.set(0, context.nodeCount());
+		removeDetectives(view, all);
+		return all;
+	}
+
+	private void removeDetectives(ScotlandYardView view, BitSet set) {
+		for (Colour colour : view.getPlayers()) {
+			if (colour.isMrX()) continue;
+			int index = context.indexOf(view.getPlayerLocation(colour));
+			if (index >= 0) set.clear(index);
+		}
+	}
+
+	@Override
+	public synchronized void onMoveMade(ScotlandYardView view, Move move) {
+		// double moves are followed by one notification per leg
+		if (!(move instanceof TicketMove)) return;
+		TicketMove ticketMove = (TicketMove) move;
+		if (move.colour().isDetective()) {
+			int index = context.indexOf(ticketMove.destination());
+			if (index >= 0) candidates.clear(index);
+			if (candidates.isEmpty()) candidates = everywhere(view);
+			return;
+		}
+		int round = legs++;
+		if (round < rounds.size() && rounds.get(round)) {
+			candidates = new BitSet(context.nodeCount());
+			candidates.set(context.indexOf(ticketMove.destination()));
+			return;
+		}
+		BitSet next = new BitSet(context.nodeCount());
+		Ticket ticket = ticketMove.ticket();
+		for (int node = candidates.nextSetBit(0); node >= 0; node = candidates
+				.nextSetBit(node + 1)) {
+			for (int slot = context.adjacencyStart(node); slot < context.adjacencyEnd(
+					node); slot++) {
+				Transport transport = context.transport(slot);
+				if (ticket == Ticket.Secret
+						|| (transport != Transport.Boat && Ticket.fromTransport(transport) == ticket))
+					next.set(context.target(slot));
+			}
+		}
+		removeDetectives(view, next);
+		// inconsistent with what we have seen, start over
+		candidates = next.isEmpty() ? everywhere(view) : next;
+	}
+
+	/**
+	 * @return the node indices Mr X could be at, never empty
+	 */
+	public synchronized int[] candidates() {
+		return candidates.stream().toArray();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "MrXBelief{" + candidates.cardinality() + " candidates after " + legs + " rounds}";
+	}
+
+}
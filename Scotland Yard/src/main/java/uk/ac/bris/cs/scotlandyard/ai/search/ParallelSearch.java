@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import uk.ac.bris.cs.scotlandyard.ai.AIExecution;
+
+/**
+ * Root parallel search: independent {@link MonteCarloTree}s are grown on a
+ * fork-join pool owned by the AI and their statistics are combined by move.
+ * Each AI bounds its own search with {@link #newPool(String)} rather than
+ * sharing the common pool with every other game.
+ */
+public final class ParallelSearch {
+
+	private ParallelSearch() {}
+
+	/**
+	 * @param name the thread name prefix; not null
+	 * @return a pool of daemon threads, one per available processor, to be
+	 *         shut down by its owner
+	 */
+	public static ForkJoinPool newPool(String name) {
+		return new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+				AIExecution.daemonWorkers(name), null, false);
+	}
+
+	/**
+	 * Grows one tree per thread of the pool until the deadline passes or the
+	 * calling thread is interrupted
+	 *
+	 * @param pool the pool to grow the trees on; not one of its threads
+	 * @param factory creates the tree of each worker given its index; called
+	 *        on the worker threads
+	 * @param deadline the deadline in {@link System#nanoTime()} terms
+	 * @return the trees; empty if the search was interrupted or failed
+	 */
+	public static List<MonteCarloTree> run(ForkJoinPool pool, IntFunction<MonteCarloTree> factory,
+			long deadline) {
+		Thread caller = Thread.currentThread();
+		List<Callable<MonteCarloTree>> workers = new ArrayList<>();
+		for (int i = 0; i < pool.getParallelism(); i++) {
+			int worker = i;
+			workers.add(() -> factory.apply(worker).search(
+					() -> System.nanoTime() - deadline > 0 || caller.isInterrupted()));
+		}
+		List<MonteCarloTree> trees = new ArrayList<>();
+		try {
+			for (Future<MonteCarloTree> future : pool.invokeAll(workers))
+				trees.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			e.printStackTrace();
+			trees.clear();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			trees.clear();
+		}
+		return trees;
+	}
+
+	/**
+	 * Follows the most visited move from the root, summing visits of the same
+	 * move over all trees
+	 *
+	 * @param trees trees built from the same root state
+	 * @param maxLength maximum number of moves to return
+	 * @return the encoded moves, possibly empty
+	 */
+	public static int[] principalVariation(List<MonteCarloTree> trees, int maxLength) {
+		int[] nodes = new int[trees.size()];
+		int[] variation = new int[maxLength];
+		int length = 0;
+		Map<Integer, Long> visits = new HashMap<>();
+		while (length < maxLength) {
+			visits.clear();
+			for (int t = 0; t < trees.size(); t++) {
+				if (nodes[t] < 0) continue;
+				MonteCarloTree tree = trees.get(t);
+				for (int i = 0; i < tree.childCount(nodes[t]); i++) {
+					int child = tree.child(nodes[t], i);
+					visits.merge(tree.move(child), (long) tree.visits(child), Long::sum);
+				}
+			}
+			Map.Entry<Integer, Long> best = null;
+			for (Map.Entry<Integer, Long> entry : visits.entrySet())
+				if (best == null || entry.getValue() > best.getValue()) best = entry;
+			if (best == null || best.getValue() == 0) break;
+			int move = best.getKey();
+			variation[length++] = move;
+			for (int t = 0; t < trees.size(); t++)
+				if (nodes[t] >= 0) nodes[t] = trees.get(t).childOf(nodes[t], move);
+		}
+		return Arrays.copyOf(variation, length);
+	}
+
+}
@@ -0,0 +1,357 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import uk.ac.bris.cs.gamekit.matrix.BitMatrix;
+import uk.ac.bris.cs.gamekit.matrix.Reachability;
+import uk.ac.bris.cs.gamekit.matrix.ShortSquareMatrix;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Deterministic iterative-deepening alpha-beta search for the detectives. <br>
+ * The search is paranoid: the detectives play as one maximising side, one ply
+ * per detective, against a Mr X who knows everything. As his location is
+ * hidden, Mr X is represented by the set of nodes he could be at; his plies
+ * choose a ticket(taxi, bus, underground or secret) and the set grows along
+ * the matching edges(see {@link Reachability#step(long[], int, long[])}).
+ * Detectives moving onto a candidate node remove it and the detectives win
+ * once no candidate is left. Double moves and reveal rounds are not modelled.
+ * <br>
+ * Leaves are scored by the number of candidates and the distances from each
+ * detective to the nearest candidate, which also order the detectives' moves.
+ * <br>
+ * Moves are encoded as single moves of {@link SearchState}. This class is not
+ * thread safe.
+ */
+public final class ParanoidSearch {
+
+	/**
+	 * Score of a won position, wins found sooner score slightly higher
+	 */
+	public static final int WIN = 1_000_000;
+
+	private static final int CANDIDATE_WEIGHT = 8;
+	private static final int NODES_PER_CLOCK_CHECK = 1024;
+	private static final int[] MRX_TICKETS = { Ticket.Taxi.ordinal(), Ticket.Bus.ordinal(),
+			Ticket.Underground.ordinal(), Ticket.Secret.ordinal() };
+	private static final int TICKETS = Ticket.values().length;
+	private static final int SECRET = Ticket.Secret.ordinal();
+
+	/**
+	 * Thrown to unwind the search once the deadline has passed
+	 */
+	private static final class Timeout extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		Timeout() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Timeout TIMEOUT = new Timeout();
+
+	private final MapContext context;
+	private final Reachability reachability;
+	private final ShortSquareMatrix distances;
+	private final int nodeCount;
+	private final int words;
+	private final int detectives;
+	private final int first;
+	private final int rounds;
+	private final byte[] transportTickets;
+	private final int[] ticketMasks;
+
+	private final int[] locations;
+	private final int[] tickets;
+	private final int[] mrXTickets;
+	private final long[][] sets;
+	private final int[][] moves;
+	private final int[][] keys;
+
+	private long deadline;
+	private long visited;
+	private int rootBest = -1;
+	private int completedDepth;
+	private int score;
+
+	/**
+	 * Creates a new search
+	 *
+	 * @param context the map; not null
+	 * @param locations node index of each detective, in turn order
+	 * @param tickets ticket counts of each detective indexed by
+	 *        {@link Ticket#ordinal()}
+	 * @param mrXTickets Mr X's ticket counts indexed by {@link Ticket#ordinal()}
+	 * @param candidates node indices Mr X could be at, not empty
+	 * @param first index of the detective to move
+	 * @param rounds number of rounds Mr X has left to play
+	 * @param maxDepth the maximum search depth in plies
+	 */
+	public ParanoidSearch(MapContext context, int[] locations, int[][] tickets,
+			int[] mrXTickets, int[] candidates, int first, int rounds, int maxDepth) {
+		this.context = Objects.requireNonNull(context);
+		this.reachability = context.get(MapContext.REACHABILITY);
+		this.distances = context.get(MapContext.DISTANCES);
+		this.nodeCount = context.nodeCount();
+		this.words = BitMatrix.wordsFor(nodeCount);
+		this.detectives = locations.length;
+		if (first < 0 || first >= detectives)
+			throw new IllegalArgumentException("No detective " + first);
+		if (candidates.length == 0) throw new IllegalArgumentException("No candidates");
+		this.first = first;
+		this.rounds = rounds;
+		this.locations = locations.clone();
+		this.tickets = new int[detectives * TICKETS];
+		for (int i = 0; i < detectives; i++)
+			System.arraycopy(tickets[i], 0, this.tickets, i * TICKETS, TICKETS);
+		this.mrXTickets = mrXTickets.clone();
+		this.transportTickets = new byte[Transport.values().length];
+		for (Transport transport : Transport.values())
+			transportTickets[transport.ordinal()] = (byte) Ticket.fromTransport(transport).ordinal();
+		this.ticketMasks = new int[TICKETS];
+		for (Transport transport : Transport.values()) {
+			if (transport != Transport.Boat)
+				ticketMasks[Ticket.fromTransport(transport).ordinal()] = MapContext
+						.transportMask(transport);
+		}
+		ticketMasks[SECRET] = reachability.allLayers();
+
+		int degree = 1;
+		for (int node = 0; node < nodeCount; node++)
+			degree = Math.max(degree, context.adjacencyEnd(node) - context.adjacencyStart(node));
+		this.sets = new long[maxDepth + 2][words];
+		this.moves = new int[maxDepth + 1][degree];
+		this.keys = new int[maxDepth + 1][degree];
+		for (int candidate : candidates)
+			sets[0][candidate >>> 6] |= 1L << candidate;
+		for (int location : locations)
+			sets[0][location >>> 6] &= ~(1L << location);
+	}
+
+	/**
+	 * Searches with increasing depth until the maximum depth is completed, the
+	 * deadline passes or the calling thread is interrupted
+	 *
+	 * @param deadline the deadline in {@link System#nanoTime()} terms
+	 * @return the best move of the last completed depth, or the best move by
+	 *         move ordering if not even depth 1 completed
+	 */
+	public int search(long deadline) {
+		return search(deadline, move -> true);
+	}
+
+	/**
+	 * Same as {@link #search(long)}, reporting the best move so far
+	 *
+	 * @param deadline the deadline in {@link System#nanoTime()} terms
+	 * @param progress receives the best move by move ordering and then the
+	 *        best move of every completed depth, returns false to stop; not
+	 *        null
+	 * @return the best move of the last completed depth, or the best move by
+	 *         move ordering if not even depth 1 completed
+	 */
+	public int search(long deadline, IntPredicate progress) {
+		this.deadline = deadline;
+		int count = generate(0);
+		rootBest = moves[0][0];
+		if (!progress.test(rootBest)) return rootBest;
+		for (int depth = 1; depth < sets.length - 1; depth++) {
+			try {
+				score = searchRoot(depth, count);
+				completedDepth = depth;
+			} catch (Timeout e) {
+				break;
+			}
+			if (!progress.test(rootBest) || Math.abs(score) >= WIN - sets.length) break;
+		}
+		return rootBest;
+	}
+
+	/**
+	 * @return the deepest depth searched completely
+	 */
+	public int completedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * @return the score of the best move at {@link #completedDepth()}
+	 */
+	public int score() {
+		return score;
+	}
+
+	/**
+	 * @return number of positions visited
+	 */
+	public long visited() {
+		return visited;
+	}
+
+	private int searchRoot(int depth, int count) {
+		// previous best first
+		for (int i = 0; i < count; i++) {
+			if (moves[0][i] != rootBest) continue;
+			System.arraycopy(moves[0], 0, moves[0], 1, i);
+			moves[0][0] = rootBest;
+			break;
+		}
+		int alpha = -WIN - 1;
+		int best = moves[0][0];
+		for (int i = 0; i < count; i++) {
+			int value = playDetective(0, depth, moves[0][i], alpha, WIN + 1);
+			if (value > alpha) {
+				alpha = value;
+				best = moves[0][i];
+			}
+		}
+		rootBest = best;
+		return alpha;
+	}
+
+	private int search(int ply, int depth, int alpha, int beta) {
+		if (++visited % NODES_PER_CLOCK_CHECK == 0 && (System.nanoTime() - deadline > 0
+				|| Thread.currentThread().isInterrupted()))
+			throw TIMEOUT;
+		long[] set = sets[ply];
+		if (isEmpty(set)) return WIN - ply;
+		if (detectiveAt(ply) < 0) return searchMrX(ply, depth, alpha, beta);
+		if (depth == 0) return evaluate(set);
+		int count = generate(ply);
+		for (int i = 0; i < count; i++) {
+			alpha = Math.max(alpha, playDetective(ply, depth, moves[ply][i], alpha, beta));
+			if (alpha >= beta) break;
+		}
+		return alpha;
+	}
+
+	private int searchMrX(int ply, int depth, int alpha, int beta) {
+		long[] set = sets[ply];
+		long[] next = sets[ply + 1];
+		int roundsLeft = rounds - mrXPliesBefore(ply);
+		boolean moved = false;
+		for (int ticket : MRX_TICKETS) {
+			if (mrXTickets[ticket] == 0) continue;
+			reachability.step(set, ticketMasks[ticket], next);
+			for (int location : locations)
+				next[location >>> 6] &= ~(1L << location);
+			if (isEmpty(next)) continue;
+			moved = true;
+			// the game ends right after Mr X's last round
+			if (roundsLeft <= 1) return -WIN + ply;
+			if (depth == 0) {
+				beta = Math.min(beta, evaluate(next));
+			} else {
+				mrXTickets[ticket]--;
+				int value = search(ply + 1, depth - 1, alpha, beta);
+				mrXTickets[ticket]++;
+				beta = Math.min(beta, value);
+			}
+			if (alpha >= beta) break;
+		}
+		return moved ? beta : WIN - ply;
+	}
+
+	private int mrXPliesBefore(int ply) {
+		return (ply + first) / (detectives + 1);
+	}
+
+	/**
+	 * @return index of the detective to move at the ply or -1 for Mr X
+	 */
+	private int detectiveAt(int ply) {
+		// Mr X is slot 0 of a rotation, detective i is slot i + 1
+		return (first + 1 + ply) % (detectives + 1) - 1;
+	}
+
+	private int playDetective(int ply, int depth, int move, int alpha, int beta) {
+		int detective = detectiveAt(ply);
+		long[] next = sets[ply + 1];
+		System.arraycopy(sets[ply], 0, next, 0, words);
+		if (move == SearchState.PASS) return search(ply + 1, depth - 1, alpha, beta);
+		int from = locations[detective];
+		int to = SearchState.destination(move);
+		int ticket = SearchState.ticket(move);
+		locations[detective] = to;
+		tickets[detective * TICKETS + ticket]--;
+		mrXTickets[ticket]++;
+		next[to >>> 6] &= ~(1L << to);
+		int value = search(ply + 1, depth - 1, alpha, beta);
+		mrXTickets[ticket]--;
+		tickets[detective * TICKETS + ticket]++;
+		locations[detective] = from;
+		return value;
+	}
+
+	private int generate(int ply) {
+		int detective = detectiveAt(ply);
+		int location = locations[detective];
+		long[] set = sets[ply];
+		int[] buffer = moves[ply];
+		int[] key = keys[ply];
+		int count = 0;
+		for (int slot = context.adjacencyStart(location); slot < context.adjacencyEnd(
+				location); slot++) {
+			int target = context.target(slot);
+			int ticket = transportTickets[context.transport(slot).ordinal()];
+			if (ticket == SECRET || tickets[detective * TICKETS + ticket] == 0
+					|| occupied(target))
+				continue;
+			int move = ticket << 12 | target;
+			int k = nearest(target, set);
+			// insertion sort by distance to Mr X, then by move
+			int i = count++;
+			while (i > 0 && (key[i - 1] > k || (key[i - 1] == k && buffer[i - 1] > move))) {
+				buffer[i] = buffer[i - 1];
+				key[i] = key[i - 1];
+				i--;
+			}
+			buffer[i] = move;
+			key[i] = k;
+		}
+		if (count == 0) buffer[count++] = SearchState.PASS;
+		return count;
+	}
+
+	private boolean occupied(int node) {
+		for (int location : locations)
+			if (location == node) return true;
+		return false;
+	}
+
+	private int evaluate(long[] set) {
+		int candidates = 0;
+		for (long word : set)
+			candidates += Long.bitCount(word);
+		int total = 0;
+		for (int location : locations)
+			total += nearest(location, set);
+		return -CANDIDATE_WEIGHT * candidates - total;
+	}
+
+	private int nearest(int node, long[] set) {
+		int nearest = nodeCount;
+		int row = node * nodeCount;
+		for (int word = 0; word < words; word++) {
+			long bits = set[word];
+			while (bits != 0) {
+				int distance = distances
+						.getShort(row + (word << 6) + Long.numberOfTrailingZeros(bits));
+				if (distance >= 0 && distance < nearest) nearest = distance;
+				bits &= bits - 1;
+			}
+		}
+		return nearest;
+	}
+
+	private static boolean isEmpty(long[] set) {
+		for (long word : set)
+			if (word != 0) return false;
+		return true;
+	}
+
+}
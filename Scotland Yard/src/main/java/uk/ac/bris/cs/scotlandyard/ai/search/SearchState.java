@@ -0,0 +1,539 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PassMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * A mutable, allocation free game state for search and simulation. <br>
+ * The rules are those of {@link uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel}
+ * but with perfect information: Mr X's real location is part of the state.
+ * Like the model, the game ends as soon as Mr X has played the last round,
+ * except during the first rotation.
+ * Locations are node indices of a {@link MapContext} and moves are encoded as
+ * ints, see {@link #toMove(int)} and {@link #encode(Move)}. <br>
+ * Player 0 is always Mr X, the detectives follow in the order of
+ * {@link ScotlandYardView#getPlayers()}. <br>
+ * This class is not thread safe; give each thread its own copy.
+ */
+public final class SearchState {
+
+	/**
+	 * The encoded pass move
+	 */
+	public static final int PASS = Integer.MAX_VALUE;
+
+	/**
+	 * Maximum number of nodes on maps supported by the move encoding
+	 */
+	public static final int MAX_NODES = 1 << 12;
+
+	/**
+	 * Result of {@link #winner()} while the game is still running
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Result of {@link #winner()} when Mr X has won
+	 */
+	public static final int MRX = 1;
+
+	/**
+	 * Result of {@link #winner()} when the detectives have won
+	 */
+	public static final int DETECTIVES = 2;
+
+	private static final int TICKETS = Ticket.values().length;
+	private static final int DOUBLE = Ticket.Double.ordinal();
+	private static final int SECRET = Ticket.Secret.ordinal();
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+	private static final int DOUBLE_FLAG = 1 << 30;
+	private static final int NODE_MASK = MAX_NODES - 1;
+
+	private final MapContext context;
+	private final Colour[] colours;
+	private final boolean[] reveal;
+	private final byte[] transportTickets;
+	private final int moveBufferSize;
+
+	private final int[] locations;
+	private final int[] tickets;
+	private int round;
+	private int current;
+	private int lastRevealed;
+	private boolean rotated;
+	private int winner;
+
+	/**
+	 * Creates a new state
+	 *
+	 * @param context the map; not null
+	 * @param rounds the reveal rounds, as in {@link ScotlandYardView#getRounds()}
+	 * @param colours the colours of all players, Mr X first; not null
+	 * @param locations the node value of every player's location
+	 * @param tickets the ticket counts of every player, indexed by
+	 *        {@link Ticket#ordinal()}
+	 * @param round the current round
+	 * @param current the index of the player to move
+	 * @param lastRevealed Mr X's last revealed node value or 0 if never
+	 *        revealed
+	 */
+	public SearchState(MapContext context, List<Boolean> rounds, Colour[] colours,
+			int[] locations, int[][] tickets, int round, int current, int lastRevealed) {
+		this.context = Objects.requireNonNull(context);
+		if (context.nodeCount() > MAX_NODES) throw new IllegalArgumentException(
+				"Maps with more than " + MAX_NODES + " nodes are not supported");
+		if (colours.length < 2 || !colours[0].isMrX())
+			throw new IllegalArgumentException("Mr X and at least one detective required");
+		if (locations.length != colours.length || tickets.length != colours.length)
+			throw new IllegalArgumentException("Inconsistent player count");
+		this.colours = colours.clone();
+		this.reveal = new boolean[rounds.size()];
+		for (int i = 0; i < reveal.length; i++)
+			reveal[i] = rounds.get(i);
+		this.transportTickets = new byte[Transport.values().length];
+		for (Transport transport : Transport.values())
+			transportTickets[transport.ordinal()] = (byte) Ticket.fromTransport(transport).ordinal();
+		int degree = 0;
+		for (int node = 0; node < context.nodeCount(); node++)
+			degree = Math.max(degree, context.adjacencyEnd(node) - context.adjacencyStart(node));
+		int singles = 2 * degree;
+		this.moveBufferSize = Math.max(1, singles + singles * singles);
+
+		this.locations = new int[colours.length];
+		this.tickets = new int[colours.length * TICKETS];
+		for (int player = 0; player < colours.length; player++) {
+			this.locations[player] = indexOf(locations[player]);
+			System.arraycopy(tickets[player], 0, this.tickets, player * TICKETS, TICKETS);
+		}
+		this.round = round;
+		this.current = current;
+		this.lastRevealed = lastRevealed == 0 ? -1 : indexOf(lastRevealed);
+		// Mr X plays at most two rounds per rotation
+		this.rotated = current == 0 ? round > 0 : round > 2;
+		this.winner = computeWinner();
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param state the state to copy
+	 */
+	public SearchState(SearchState state) {
+		this.context = state.context;
+		this.colours = state.colours;
+		this.reveal = state.reveal;
+		this.transportTickets = state.transportTickets;
+		this.moveBufferSize = state.moveBufferSize;
+		this.locations = state.locations.clone();
+		this.tickets = state.tickets.clone();
+		this.round = state.round;
+		this.current = state.current;
+		this.lastRevealed = state.lastRevealed;
+		this.rotated = state.rotated;
+		this.winner = state.winner;
+	}
+
+	/**
+	 * Creates a state from a view of a game
+	 *
+	 * @param view the view; not null
+	 * @param context the context of the view's map; not null
+	 * @param mrXLocation the node value of Mr X's real or assumed location
+	 * @return the state; never null
+	 */
+	public static SearchState fromView(ScotlandYardView view, MapContext context,
+			int mrXLocation) {
+		List<Colour> players = view.getPlayers();
+		Colour[] colours = players.toArray(new Colour[players.size()]);
+		int[] locations = new int[colours.length];
+		int[][] tickets = new int[colours.length][TICKETS];
+		for (int player = 0; player < colours.length; player++) {
+			locations[player] = colours[player].isMrX() ? mrXLocation
+					: view.getPlayerLocation(colours[player]);
+			for (Ticket ticket : TICKET_VALUES)
+				tickets[player][ticket.ordinal()] = view.getPlayerTickets(colours[player], ticket);
+		}
+		return new SearchState(context, view.getRounds(), colours, locations, tickets,
+				view.getCurrentRound(), players.indexOf(view.getCurrentPlayer()),
+				view.getPlayerLocation(Colour.Black));
+	}
+
+	private int indexOf(int value) {
+		int index = context.indexOf(value);
+		if (index < 0) throw new IllegalArgumentException("Location " + value + " not in map");
+		return index;
+	}
+
+	/**
+	 * Overwrites this state with another state of the same game
+	 *
+	 * @param state the state to copy; not null
+	 */
+	public void copyFrom(SearchState state) {
+		if (state.context != context || state.locations.length != locations.length)
+			throw new IllegalArgumentException("States of different games");
+		System.arraycopy(state.locations, 0, locations, 0, locations.length);
+		System.arraycopy(state.tickets, 0, tickets, 0, tickets.length);
+		round = state.round;
+		current = state.current;
+		lastRevealed = state.lastRevealed;
+		rotated = state.rotated;
+		winner = state.winner;
+	}
+
+	/**
+	 * @return the map of this state
+	 */
+	public MapContext context() {
+		return context;
+	}
+
+	/**
+	 * @return number of players, including Mr X
+	 */
+	public int playerCount() {
+		return locations.length;
+	}
+
+	/**
+	 * @param player the player index
+	 * @return the colour of the player
+	 */
+	public Colour colour(int player) {
+		return colours[player];
+	}
+
+	/**
+	 * @param player the player index
+	 * @return the node index of the player's location
+	 */
+	public int location(int player) {
+		return locations[player];
+	}
+
+	/**
+	 * @param player the player index
+	 * @param ticket the ticket
+	 * @return number of tickets the player holds
+	 */
+	public int tickets(int player, Ticket ticket) {
+		return tickets[player * TICKETS + ticket.ordinal()];
+	}
+
+	/**
+	 * @return the current round
+	 */
+	public int round() {
+		return round;
+	}
+
+	/**
+	 * @return the total number of rounds
+	 */
+	public int rounds() {
+		return reveal.length;
+	}
+
+	/**
+	 * @return index of the player to move
+	 */
+	public int current() {
+		return current;
+	}
+
+	/**
+	 * @return node index of Mr X's last revealed location or -1 if it has not
+	 *         been revealed yet
+	 */
+	public int lastRevealed() {
+		return lastRevealed;
+	}
+
+	/**
+	 * @return one of {@link #NONE}, {@link #MRX} or {@link #DETECTIVES}
+	 */
+	public int winner() {
+		return winner;
+	}
+
+	/**
+	 * @return true if the game is over
+	 */
+	public boolean isOver() {
+		return winner != NONE;
+	}
+
+	/**
+	 * @return the minimum size of the buffer passed to
+	 *         {@link #generateMoves(int[], boolean)}
+	 */
+	public int moveBufferSize() {
+		return moveBufferSize;
+	}
+
+	/**
+	 * Generates the distinct moves available to the current player, in
+	 * ascending encoded order
+	 *
+	 * @param moves the buffer to write the moves to, at least
+	 *        {@link #moveBufferSize()} long
+	 * @param doubles whether to include Mr X's double moves
+	 * @return number of moves written, 0 only if Mr X is stuck
+	 */
+	public int generateMoves(int[] moves, boolean doubles) {
+		int count = 0;
+		int player = current;
+		int base = player * TICKETS;
+		int location = locations[player];
+		for (int slot = context.adjacencyStart(location); slot < context.adjacencyEnd(
+				location); slot++) {
+			int target = context.target(slot);
+			if (occupied(target)) continue;
+			int ticket = transportTickets[context.transport(slot).ordinal()];
+			if (ticket != SECRET && tickets[base + ticket] > 0) moves[count++] = single(ticket,
+					target);
+			if (player == 0 && tickets[SECRET] > 0) moves[count++] = single(SECRET, target);
+		}
+		if (player == 0 && doubles && tickets[DOUBLE] > 0 && round + 1 < reveal.length) {
+			int singles = count;
+			for (int i = 0; i < singles; i++) {
+				int first = moves[i];
+				int firstTicket = ticket(first);
+				int via = destination(first);
+				tickets[firstTicket]--;
+				for (int slot = context.adjacencyStart(via); slot < context.adjacencyEnd(
+						via); slot++) {
+					int target = context.target(slot);
+					if (occupied(target)) continue;
+					int ticket = transportTickets[context.transport(slot).ordinal()];
+					if (tickets[ticket] > 0) moves[count++] = pair(first, ticket, target);
+					if (ticket != SECRET && tickets[SECRET] > 0)
+						moves[count++] = pair(first, SECRET, target);
+				}
+				tickets[firstTicket]++;
+			}
+		}
+		if (player != 0 && count == 0) {
+			moves[0] = PASS;
+			return 1;
+		}
+		return unique(moves, count);
+	}
+
+	private static int unique(int[] moves, int count) {
+		if (count < 2) return count;
+		Arrays.sort(moves, 0, count);
+		int distinct = 1;
+		for (int i = 1; i < count; i++)
+			if (moves[i] != moves[distinct - 1]) moves[distinct++] = moves[i];
+		return distinct;
+	}
+
+	private boolean hasAnyMove(int player) {
+		int base = player * TICKETS;
+		int location = locations[player];
+		boolean secret = player == 0 && tickets[SECRET] > 0;
+		for (int slot = context.adjacencyStart(location); slot < context.adjacencyEnd(
+				location); slot++) {
+			if (occupied(context.target(slot))) continue;
+			int ticket = transportTickets[context.transport(slot).ordinal()];
+			if (secret || (ticket != SECRET && tickets[base + ticket] > 0)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param node the node index
+	 * @return true if a detective is at the node
+	 */
+	public boolean occupied(int node) {
+		for (int player = 1; player < locations.length; player++)
+			if (locations[player] == node) return true;
+		return false;
+	}
+
+	/**
+	 * Moves Mr X without playing a move, e.g. to determinise a state in which
+	 * his location is unknown
+	 *
+	 * @param node the node index
+	 */
+	public void placeMrX(int node) {
+		if (node < 0 || node >= context.nodeCount())
+			throw new IndexOutOfBoundsException("Node " + node + " out of range");
+		locations[0] = node;
+		winner = computeWinner();
+	}
+
+	/**
+	 * Plays a move for the current player, the move must be one of the moves
+	 * generated by {@link #generateMoves(int[], boolean)}
+	 *
+	 * @param move the encoded move
+	 */
+	public void apply(int move) {
+		if (winner != NONE) throw new IllegalStateException("Game is already over");
+		int player = current;
+		if (move == PASS) {
+			if (player == 0) throw new IllegalArgumentException("Mr X cannot pass");
+		} else if (player == 0) {
+			if (isDouble(move)) {
+				tickets[DOUBLE]--;
+				moveMrX(ticket(move), destination(move));
+				moveMrX(secondTicket(move), secondDestination(move));
+			} else {
+				moveMrX(ticket(move), destination(move));
+			}
+		} else {
+			int ticket = ticket(move);
+			tickets[player * TICKETS + ticket]--;
+			tickets[ticket]++;
+			locations[player] = destination(move);
+		}
+		current = (player + 1) % locations.length;
+		if (current == 0) rotated = true;
+		winner = computeWinner();
+	}
+
+	private void moveMrX(int ticket, int destination) {
+		tickets[ticket]--;
+		locations[0] = destination;
+		round++;
+		if (reveal[round - 1]) lastRevealed = destination;
+	}
+
+	private int computeWinner() {
+		if (occupied(locations[0]) || (current == 0 && !hasAnyMove(0))) return DETECTIVES;
+		if (round == reveal.length && (current == 0 || rotated)) return MRX;
+		for (int player = 1; player < locations.length; player++)
+			if (hasAnyMove(player)) return NONE;
+		return MRX;
+	}
+
+	private static int single(int ticket, int destination) {
+		return ticket << 12 | destination;
+	}
+
+	private static int pair(int first, int ticket, int destination) {
+		return DOUBLE_FLAG | first << 15 | ticket << 12 | destination;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the move is a double move
+	 */
+	public static boolean isDouble(int move) {
+		return move != PASS && (move & DOUBLE_FLAG) != 0;
+	}
+
+	/**
+	 * @param move the encoded move, not a pass
+	 * @return ordinal of the (first) ticket of the move
+	 */
+	public static int ticket(int move) {
+		return isDouble(move) ? move >>> 27 & 7 : move >>> 12 & 7;
+	}
+
+	/**
+	 * @param move the encoded move, not a pass
+	 * @return node index of the (first) destination of the move
+	 */
+	public static int destination(int move) {
+		return isDouble(move) ? move >>> 15 & NODE_MASK : move & NODE_MASK;
+	}
+
+	/**
+	 * @param move the encoded double move
+	 * @return ordinal of the second ticket of the move
+	 */
+	public static int secondTicket(int move) {
+		return move >>> 12 & 7;
+	}
+
+	/**
+	 * @param move the encoded double move
+	 * @return node index of the final destination of the move
+	 */
+	public static int secondDestination(int move) {
+		return move & NODE_MASK;
+	}
+
+	/**
+	 * @param move the encoded move, not a pass
+	 * @return node index of the final destination of the move
+	 */
+	public static int finalDestination(int move) {
+		return isDouble(move) ? secondDestination(move) : destination(move);
+	}
+
+	/**
+	 * Decodes a move played by the current player
+	 *
+	 * @param move the encoded move
+	 * @return the move; never null
+	 */
+	public Move toMove(int move) {
+		return toMove(move, current);
+	}
+
+	/**
+	 * Decodes a move
+	 *
+	 * @param move the encoded move
+	 * @param player index of the player playing the move
+	 * @return the move; never null
+	 */
+	public Move toMove(int move, int player) {
+		Colour colour = colours[player];
+		if (move == PASS) return new PassMove(colour);
+		if (isDouble(move)) return new DoubleMove(colour,
+				TICKET_VALUES[ticket(move)], context.nodeValue(destination(move)),
+				TICKET_VALUES[secondTicket(move)], context.nodeValue(secondDestination(move)));
+		return new TicketMove(colour, TICKET_VALUES[ticket(move)],
+				context.nodeValue(destination(move)));
+	}
+
+	/**
+	 * Encodes a move
+	 *
+	 * @param move the move; not null
+	 * @return the encoded move
+	 */
+	public int encode(Move move) {
+		if (move instanceof PassMove) return PASS;
+		if (move instanceof DoubleMove) {
+			DoubleMove pair = (DoubleMove) move;
+			return pair(single(pair.firstMove().ticket().ordinal(),
+					indexOf(pair.firstMove().destination())),
+					pair.secondMove().ticket().ordinal(),
+					indexOf(pair.secondMove().destination()));
+		}
+		if (move instanceof TicketMove) {
+			TicketMove single = (TicketMove) move;
+			return single(single.ticket().ordinal(), indexOf(single.destination()));
+		}
+		throw new IllegalArgumentException("Unknown move " + move);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("SearchState{round=").append(round)
+				.append(", current=").append(colours[current]);
+		for (int player = 0; player < locations.length; player++)
+			builder.append(", ").append(colours[player]).append('@')
+					.append(context.nodeValue(locations[player]));
+		return builder.append(", winner=").append(winner).append('}').toString();
+	}
+
+}
@@ -0,0 +1,337 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.matrix.Reachability;
+import uk.ac.bris.cs.gamekit.matrix.ShortSquareMatrix;
+
+/**
+ * Facts about a single map that do not change during a game, shared by every
+ * model and AI playing on a map with the same content. Instances are obtained
+ * from a {@link MapContextRegistry}. <br>
+ * The context holds the map as an in-memory {@link ScotlandYardMapBundle}
+ * (node index, CSR adjacency and transports) and lazily builds derived
+ * structures identified by a {@link Key}; each structure is built at most
+ * once per context and may be persisted to the registry's cache directory.
+ * <br>
+ * This class is thread safe.
+ */
+public final class MapContext {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	/**
+	 * All-pairs shortest hop distances over all transports except
+	 * {@link Transport#Boat}, i.e. the transports detectives can use. Rows
+	 * and columns are node indices, -1 for unreachable pairs
+	 */
+	public static final Key<ShortSquareMatrix> DISTANCES = Key.persistent("distances", 2,
+			context -> context.computeDistances(transport -> transport != Transport.Boat),
+			Codec.SHORT_MATRIX);
+
+	/**
+	 * Bit matrix reachability over the map with one layer per transport, layer
+	 * i being {@code Transport.values()[i]}; see {@link #transportMask(Transport...)}
+	 */
+	public static final Key<Reachability> REACHABILITY = Key.of("reachability",
+			context -> Reachability.fromGraph(context.graph, Transport::ordinal,
+					TRANSPORTS.length));
+
+	private final Graph<Integer, Transport> graph;
+	private final ScotlandYardMapBundle bundle;
+	private final Path cacheDirectory;
+
+	private final ConcurrentMap<Key<?>, Supplier<?>> derived = new ConcurrentHashMap<>();
+
+	MapContext(Graph<Integer, Transport> graph, Path cacheDirectory) {
+		this.graph = Objects.requireNonNull(graph);
+		this.bundle = ScotlandYardMapBundle.of(graph);
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * @return the content hash of the map, see
+	 *         {@link ScotlandYardMapBundle#contentHash(Graph)}
+	 */
+	public long contentHash() {
+		return bundle.contentHash();
+	}
+
+	/**
+	 * @return the graph this context was first created for; never null
+	 */
+	public Graph<Integer, Transport> graph() {
+		return graph;
+	}
+
+	/**
+	 * @return the map in indexed form, node indices of the bundle are the
+	 *         node indices used by all derived structures; never null
+	 */
+	public ScotlandYardMapBundle bundle() {
+		return bundle;
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#nodeCount()
+	 */
+	public int nodeCount() {
+		return bundle.nodeCount();
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#nodeValue(int)
+	 */
+	public int nodeValue(int index) {
+		return bundle.nodeValue(index);
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#indexOf(int)
+	 */
+	public int indexOf(int value) {
+		return bundle.indexOf(value);
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#adjacencyStart(int)
+	 */
+	public int adjacencyStart(int index) {
+		return bundle.adjacencyStart(index);
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#adjacencyEnd(int)
+	 */
+	public int adjacencyEnd(int index) {
+		return bundle.adjacencyEnd(index);
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#target(int)
+	 */
+	public int target(int slot) {
+		return bundle.target(slot);
+	}
+
+	/**
+	 * @see ScotlandYardMapBundle#transport(int)
+	 */
+	public Transport transport(int slot) {
+		return bundle.transport(slot);
+	}
+
+	/**
+	 * @param transports the transports
+	 * @return a {@link #REACHABILITY} layer mask selecting the transports
+	 */
+	public static int transportMask(Transport... transports) {
+		int mask = 0;
+		for (Transport transport : transports)
+			mask |= 1 << transport.ordinal();
+		return mask;
+	}
+
+	/**
+	 * Retrieves a derived structure, building it on first access. Concurrent
+	 * callers asking for the same key wait for a single build
+	 *
+	 * @param key the key; not null
+	 * @param <T> the type of the structure
+	 * @return the structure; never null. Callers must not modify it
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Key<T> key) {
+		Objects.requireNonNull(key);
+		// built outside of computeIfAbsent so builders may request other keys
+		return (T) derived.computeIfAbsent(key, k -> Suppliers.memoize(() -> load(key))).get();
+	}
+
+	private <T> T load(Key<T> key) {
+		if (cacheDirectory == null || key.codec == null) return key.builder.apply(this);
+		Path file = cacheDirectory.resolve(String.format("%016x-%s-v%d.bin",
+				bundle.contentHash(), key.name, key.version));
+		if (Files.isRegularFile(file)) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				return key.codec.read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+			} catch (IOException | RuntimeException e) {
+				// corrupt or unreadable, rebuild below
+				e.printStackTrace();
+			}
+		}
+		T value = key.builder.apply(this);
+		try {
+			Files.createDirectories(cacheDirectory);
+			Path temp = Files.createTempFile(cacheDirectory, file.getFileName().toString(), ".tmp");
+			try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temp))) {
+				DataOutputStream out = new DataOutputStream(stream);
+				key.codec.write(value, out);
+				out.flush();
+			}
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// the cache is an optimisation only
+			e.printStackTrace();
+		}
+		return value;
+	}
+
+	private ShortSquareMatrix computeDistances(Predicate<Transport> usable) {
+		int n = bundle.nodeCount();
+		ShortSquareMatrix distances = new ShortSquareMatrix(n);
+		short[] row = new short[n];
+		int[] queue = new int[n];
+		for (int source = 0; source < n; source++) {
+			Arrays.fill(row, (short) -1);
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = source;
+			row[source] = 0;
+			while (head < tail) {
+				int current = queue[head++];
+				short next = (short) (row[current] + 1);
+				for (int slot = bundle.adjacencyStart(current); slot < bundle
+						.adjacencyEnd(current); slot++) {
+					int target = bundle.target(slot);
+					if (row[target] != -1 || !usable.test(bundle.transport(slot))) continue;
+					row[target] = next;
+					queue[tail++] = target;
+				}
+			}
+			distances.setRow(source, row, 0);
+		}
+		return distances;
+	}
+
+	@Override
+	public String toString() {
+		return "MapContext{hash=" + Long.toHexString(bundle.contentHash()) + ", nodes="
+				+ bundle.nodeCount() + ", derived=" + derived.size() + "}";
+	}
+
+	/**
+	 * Identifies a derived structure. Keys are compared by identity so they
+	 * should be kept in constants
+	 *
+	 * @param <T> the type of the structure
+	 */
+	public static final class Key<T> {
+
+		private final String name;
+		private final int version;
+		private final Function<MapContext, T> builder;
+		private final Codec<T> codec;
+
+		private Key(String name, int version, Function<MapContext, T> builder, Codec<T> codec) {
+			this.name = Objects.requireNonNull(name);
+			this.version = version;
+			this.builder = Objects.requireNonNull(builder);
+			this.codec = codec;
+		}
+
+		/**
+		 * Creates a key for a structure that is only kept in memory
+		 *
+		 * @param name a descriptive name; not null
+		 * @param builder builds the structure from a context; not null
+		 */
+		public static <T> Key<T> of(String name, Function<MapContext, T> builder) {
+			return new Key<>(name, 0, builder, null);
+		}
+
+		/**
+		 * Creates a key for a structure that is also persisted to the
+		 * registry's cache directory, if it has one
+		 *
+		 * @param name a unique name, used in the cache file name; not null
+		 * @param version the version of the structure's layout, bump when the
+		 *        builder or codec changes
+		 * @param builder builds the structure from a context; not null
+		 * @param codec reads and writes the structure; not null
+		 */
+		public static <T> Key<T> persistent(String name, int version,
+				Function<MapContext, T> builder, Codec<T> codec) {
+			return new Key<>(name, version, builder, Objects.requireNonNull(codec));
+		}
+
+		@Override
+		public String toString() {
+			return "Key{" + name + " v" + version + "}";
+		}
+	}
+
+	/**
+	 * Converts a derived structure to and from its persisted form
+	 *
+	 * @param <T> the type of the structure
+	 */
+	public interface Codec<T> {
+
+		/**
+		 * Codec for short matrices, stored as the size followed by the rows
+		 */
+		Codec<ShortSquareMatrix> SHORT_MATRIX = new Codec<ShortSquareMatrix>() {
+			@Override
+			public void write(ShortSquareMatrix value, DataOutputStream out) throws IOException {
+				short[] row = new short[value.size()];
+				out.writeInt(row.length);
+				for (int i = 0; i < row.length; i++) {
+					value.copyRow(i, row, 0);
+					for (short v : row)
+						out.writeShort(v);
+				}
+			}
+
+			@Override
+			public ShortSquareMatrix read(ByteBuffer buffer) throws IOException {
+				int size = buffer.getInt();
+				if (size < 1 || buffer.remaining() != (long) size * size * Short.BYTES)
+					throw new IOException("Corrupt short matrix, size " + size);
+				ShortSquareMatrix value = new ShortSquareMatrix(size);
+				ShortBuffer cells = buffer.asShortBuffer();
+				short[] row = new short[size];
+				for (int i = 0; i < size; i++) {
+					cells.get(row);
+					value.setRow(i, row, 0);
+				}
+				return value;
+			}
+		};
+
+		/**
+		 * @param value the structure to write; never null
+		 * @param out the output; never null
+		 */
+		void write(T value, DataOutputStream out) throws IOException;
+
+		/**
+		 * @param buffer a read-only, memory-mapped view of the persisted file
+		 * @return the structure; never null
+		 * @throws IOException if the buffer's content is invalid
+		 */
+		T read(ByteBuffer buffer) throws IOException;
+	}
+
+}
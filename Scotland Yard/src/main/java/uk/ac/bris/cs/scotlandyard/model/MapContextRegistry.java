@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Registry of {@link MapContext}s keyed by the content hash of their map(see
+ * {@link ScotlandYardMapBundle#contentHash(Graph)}), so all games and AIs on
+ * the same map share one context and its derived structures. <br>
+ * The content hash is computed once per graph instance; graphs are remembered
+ * by identity and held weakly. Contexts themselves are kept for the lifetime
+ * of the registry. <br>
+ * This class is thread safe.
+ */
+public final class MapContextRegistry {
+
+	/**
+	 * System property naming the cache directory of {@link #shared()}; when
+	 * unset the shared registry is memory only
+	 */
+	public static final String CACHE_DIRECTORY_PROPERTY = "scotlandyard.mapcache";
+
+	private static final MapContextRegistry SHARED = new MapContextRegistry(
+			System.getProperty(CACHE_DIRECTORY_PROPERTY) == null ? null
+					: Paths.get(System.getProperty(CACHE_DIRECTORY_PROPERTY)));
+
+	private final Path cacheDirectory;
+	private final ConcurrentMap<Graph<Integer, Transport>, MapContext> byGraph = new MapMaker()
+			.weakKeys()
+			.makeMap();
+	private final ConcurrentMap<Long, MapContext> byHash = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new registry
+	 *
+	 * @param cacheDirectory directory to persist derived structures in, created
+	 *        on demand; null to keep everything in memory
+	 */
+	public MapContextRegistry(Path cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * @return the registry shared by the whole JVM; never null
+	 */
+	public static MapContextRegistry shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Finds or creates the context for a map
+	 *
+	 * @param graph the map; not null. The graph must not be modified after
+	 *        this call
+	 * @return the context; never null
+	 * @throws IllegalArgumentException if the graph is not undirected, see
+	 *         {@link ScotlandYardMapBundle#compile(Graph, Map, OutputStream)}
+	 */
+	public MapContext contextOf(Graph<Integer, Transport> graph) {
+		Objects.requireNonNull(graph);
+		return byGraph.computeIfAbsent(graph, g -> {
+			long hash = ScotlandYardMapBundle.contentHash(g);
+			MapContext context = byHash.computeIfAbsent(hash,
+					h -> new MapContext(g, cacheDirectory));
+			// a different map with the same hash gets a private context
+			if (context.graph() != g && !context.graph().equals(g))
+				return new MapContext(g, null);
+			return context;
+		});
+	}
+
+	/**
+	 * @return number of distinct maps seen so far
+	 */
+	public int size() {
+		return byHash.size();
+	}
+
+	@Override
+	public String toString() {
+		return "MapContextRegistry{cache=" + cacheDirectory + ", contexts=" + byHash.values()
+				+ "}";
+	}
+
+}
@@ -0,0 +1,262 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of {@link ScotlandYardModel}, see
+ * {@link ScotlandYardModel#setMetrics(ModelMetrics)} <br>
+ * Recording never blocks: counters are striped {@link LongAdder}s and
+ * histograms count nanoseconds in power of two buckets with atomic
+ * increments. One instance may be shared by any number of games on any
+ * number of threads; {@link #snapshot()} reads everything without stopping
+ * them, so a snapshot taken while games run may be off by the events
+ * recorded during the read.
+ */
+public final class ModelMetrics {
+
+	/**
+	 * System property that, when true, makes the UI record the metrics of its
+	 * games into {@link #shared()}
+	 */
+	public static final String ENABLED_PROPERTY = "scotlandyard.metrics";
+
+	private static final ModelMetrics SHARED = new ModelMetrics();
+
+	/**
+	 * Things the model counts
+	 */
+	public enum Counter {
+		/**
+		 * Sets of available moves offered to a player; the model's own checks,
+		 * e.g. validating a move, are not counted
+		 */
+		GENERATIONS,
+		/**
+		 * Total moves in all sets offered to players
+		 */
+		MOVES_GENERATED
+	}
+
+	/**
+	 * Things the model times; phases may contain each other, e.g.
+	 * {@link #ACCEPT} includes the spectators notified for the move
+	 */
+	public enum Phase {
+		/**
+		 * Computing the available moves offered to a player; validating a move
+		 * is part of {@link #ACCEPT}
+		 */
+		AVAILABLE_MOVES,
+		/**
+		 * Playing a move, up to asking the next player
+		 */
+		ACCEPT,
+		/**
+		 * {@link ScotlandYardGame#isGameOver()}
+		 */
+		GAME_OVER,
+		/**
+		 * Notifying all spectators of one event
+		 */
+		SPECTATORS,
+		/**
+		 * From asking a player for a move until the move is played
+		 */
+		THINK
+	}
+
+	private final LongAdder[] counters = new LongAdder[Counter.values().length];
+	private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+	public ModelMetrics() {
+		for (int i = 0; i < counters.length; i++)
+			counters[i] = new LongAdder();
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new Histogram();
+	}
+
+	/**
+	 * @return the metrics shared by the whole JVM; never null
+	 */
+	public static ModelMetrics shared() {
+		return SHARED;
+	}
+
+	public void add(Counter counter, long amount) {
+		counters[counter.ordinal()].add(amount);
+	}
+
+	public void increment(Counter counter) {
+		counters[counter.ordinal()].increment();
+	}
+
+	/**
+	 * @param phase the phase
+	 * @param nanos how long the phase took, negative values count as 0
+	 */
+	public void record(Phase phase, long nanos) {
+		histograms[phase.ordinal()].record(nanos);
+	}
+
+	/**
+	 * @return the current value of every counter and histogram; never null
+	 */
+	public Snapshot snapshot() {
+		Map<Counter, Long> counts = new EnumMap<>(Counter.class);
+		for (Counter counter : Counter.values())
+			counts.put(counter, counters[counter.ordinal()].sum());
+		Map<Phase, HistogramSnapshot> phases = new EnumMap<>(Phase.class);
+		for (Phase phase : Phase.values())
+			phases.put(phase, histograms[phase.ordinal()].snapshot());
+		return new Snapshot(counts, phases);
+	}
+
+	/**
+	 * Counts latencies in 64 buckets, bucket {@code i} holding values in
+	 * [2<sup>i</sup>, 2<sup>i+1</sup>) nanoseconds and bucket 0 also holding 0
+	 */
+	static final class Histogram {
+
+		static final int BUCKETS = 64;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long nanos) {
+			long value = Math.max(0, nanos);
+			buckets.incrementAndGet(bucket(value));
+			total.add(value);
+			max.accumulate(value);
+		}
+
+		static int bucket(long nanos) {
+			return 63 - Long.numberOfLeadingZeros(nanos | 1);
+		}
+
+		HistogramSnapshot snapshot() {
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				counts[i] = buckets.get(i);
+			return new HistogramSnapshot(counts, total.sum(), max.get());
+		}
+	}
+
+	/**
+	 * The values of all counters and histograms at one point in time
+	 */
+	public static final class Snapshot {
+
+		private final Map<Counter, Long> counts;
+		private final Map<Phase, HistogramSnapshot> phases;
+
+		Snapshot(Map<Counter, Long> counts, Map<Phase, HistogramSnapshot> phases) {
+			this.counts = counts;
+			this.phases = phases;
+		}
+
+		public long count(Counter counter) {
+			return counts.get(requireNonNull(counter));
+		}
+
+		public HistogramSnapshot histogram(Phase phase) {
+			return phases.get(requireNonNull(phase));
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("ModelMetrics{");
+			counts.forEach((counter, count) -> builder.append(counter).append('=')
+					.append(count).append(", "));
+			phases.forEach((phase, histogram) -> builder.append(phase).append('=')
+					.append(histogram).append(", "));
+			builder.setLength(builder.length() - 2);
+			return builder.append('}').toString();
+		}
+	}
+
+	/**
+	 * The values of one latency histogram at one point in time, quantiles are
+	 * the upper bounds of their buckets so they overestimate by less than
+	 * a factor of two
+	 */
+	public static final class HistogramSnapshot {
+
+		private final long[] buckets;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		HistogramSnapshot(long[] buckets, long totalNanos, long maxNanos) {
+			this.buckets = buckets;
+			this.count = Arrays.stream(buckets).sum();
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		/**
+		 * @return number of recorded latencies
+		 */
+		public long count() {
+			return count;
+		}
+
+		public long totalNanos() {
+			return totalNanos;
+		}
+
+		public long maxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * @return the mean latency, 0 if nothing was recorded
+		 */
+		public double meanNanos() {
+			return count == 0 ? 0 : (double) totalNanos / count;
+		}
+
+		/**
+		 * @param quantile in [0, 1], e.g. 0.99
+		 * @return a latency at least as high as that quantile, at most
+		 *         {@link #maxNanos()}; 0 if nothing was recorded
+		 */
+		public long quantileNanos(double quantile) {
+			if (!(quantile >= 0 && quantile <= 1))
+				throw new IllegalArgumentException("Quantile not in [0, 1]: " + quantile);
+			if (count == 0) return 0;
+			long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank)
+					return Math.min(maxNanos, i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1);
+			}
+			return maxNanos;
+		}
+
+		/**
+		 * @param bucket the bucket, in [0, 64)
+		 * @return number of latencies in [2<sup>bucket</sup>,
+		 *         2<sup>bucket+1</sup>) nanoseconds
+		 */
+		public long bucket(int bucket) {
+			return buckets[bucket];
+		}
+
+		@Override
+		public String toString() {
+			return String.format("{count=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, max=%.1fus}",
+					count, meanNanos() / 1e3, quantileNanos(0.5) / 1e3,
+					quantileNanos(0.99) / 1e3, maxNanos / 1e3);
+		}
+	}
+
+}
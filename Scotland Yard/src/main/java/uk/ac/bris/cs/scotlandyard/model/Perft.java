@@ -0,0 +1,344 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Counts every legal sequence of moves up to a given depth from a game state,
+ * for checking move generation and measuring its throughput <br>
+ * One move is one turn of one player, so a double move is a single move. The
+ * moves leading to the leaves are split by kind, like perft in chess, and
+ * games that end before the depth is reached are counted separately. <br>
+ * The game is only driven through {@link ScotlandYardGameFactory} and
+ * {@link ScotlandYardGame#startRotate()}, so any implementation can be
+ * counted. As games cannot be copied or undone, every interior position is
+ * reached by creating a new game and replaying the moves that lead to it; the
+ * moves available at the last interior level are counted without playing
+ * them. <br>
+ * This class is immutable and thread safe; the counting itself runs either on
+ * the calling thread or with one fork-join task per move at the root.
+ */
+public final class Perft {
+
+	/**
+	 * The number of positions found by a count, all counts are exact
+	 */
+	public static final class Counts {
+
+		private long leaves;
+		private long tickets;
+		private long secrets;
+		private long doubles;
+		private long passes;
+		private long gameOvers;
+
+		Counts() {}
+
+		// the move is null for the root
+		void leaf(Move move) {
+			leaves++;
+			if (move == null) return;
+			if (move instanceof DoubleMove) doubles++;
+			else if (move instanceof PassMove) passes++;
+			else if (((TicketMove) move).ticket() == Ticket.Secret) secrets++;
+			else tickets++;
+		}
+
+		void gameOver() {
+			gameOvers++;
+		}
+
+		void add(Counts counts) {
+			leaves += counts.leaves;
+			tickets += counts.tickets;
+			secrets += counts.secrets;
+			doubles += counts.doubles;
+			passes += counts.passes;
+			gameOvers += counts.gameOvers;
+		}
+
+		/**
+		 * @return number of positions at exactly the requested depth
+		 */
+		public long leaves() {
+			return leaves;
+		}
+
+		/**
+		 * @return leaves reached by a single move with a taxi, bus or
+		 *         underground ticket
+		 */
+		public long tickets() {
+			return tickets;
+		}
+
+		/**
+		 * @return leaves reached by a single move with a secret ticket
+		 */
+		public long secrets() {
+			return secrets;
+		}
+
+		/**
+		 * @return leaves reached by a double move, whatever its tickets
+		 */
+		public long doubles() {
+			return doubles;
+		}
+
+		/**
+		 * @return leaves reached by a pass
+		 */
+		public long passes() {
+			return passes;
+		}
+
+		/**
+		 * @return number of positions before the requested depth in which the
+		 *         game is over
+		 */
+		public long gameOvers() {
+			return gameOvers;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Counts that = (Counts) o;
+			return leaves == that.leaves && tickets == that.tickets
+					&& secrets == that.secrets && doubles == that.doubles
+					&& passes == that.passes && gameOvers == that.gameOvers;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(
+					new long[] { leaves, tickets, secrets, doubles, passes, gameOvers });
+		}
+
+		@Override
+		public String toString() {
+			return "Counts{leaves=" + leaves + ", tickets=" + tickets + ", secrets=" + secrets
+					+ ", doubles=" + doubles + ", passes=" + passes + ", gameOvers="
+					+ gameOvers + '}';
+		}
+	}
+
+	private final ScotlandYardGameFactory factory;
+	private final List<Boolean> rounds;
+	private final Graph<Integer, Transport> graph;
+	private final List<PlayerConfiguration> configurations;
+	private final List<Move> history;
+
+	private Perft(ScotlandYardGameFactory factory, List<Boolean> rounds,
+			Graph<Integer, Transport> graph, List<PlayerConfiguration> configurations,
+			List<Move> history) {
+		this.factory = factory;
+		this.rounds = rounds;
+		this.graph = graph;
+		this.configurations = configurations;
+		this.history = history;
+	}
+
+	/**
+	 * Counts from the start of a game
+	 *
+	 * @param factory creates the games to count; not null
+	 * @param rounds the rounds of the game; not null
+	 * @param graph the map; not null
+	 * @param mrX Mr X's start; the player is ignored
+	 * @param detectives the detectives' starts, at least one; the players are
+	 *        ignored
+	 * @return the perft for the start of the game; never null
+	 * @throws IllegalArgumentException if there are no detectives or the
+	 *         factory rejects the game
+	 */
+	public static Perft of(ScotlandYardGameFactory factory, List<Boolean> rounds,
+			Graph<Integer, Transport> graph, PlayerConfiguration mrX,
+			PlayerConfiguration... detectives) {
+		requireNonNull(factory);
+		requireNonNull(rounds);
+		requireNonNull(graph);
+		if (detectives.length == 0) throw new IllegalArgumentException("No detectives");
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		configurations.add(requireNonNull(mrX));
+		for (PlayerConfiguration detective : detectives)
+			configurations.add(requireNonNull(detective));
+		Perft perft = new Perft(factory, rounds, graph,
+				Collections.unmodifiableList(configurations), Collections.emptyList());
+		// fail early, not on some worker thread
+		perft.moves(perft.history);
+		return perft;
+	}
+
+	/**
+	 * @param moves moves played in order from the state of this perft
+	 * @return the perft for the state after the moves; never null
+	 * @throws IllegalArgumentException if a move is not legal
+	 */
+	public Perft after(List<Move> moves) {
+		List<Move> history = new ArrayList<>(this.history);
+		for (Move move : moves)
+			history.add(requireNonNull(move));
+		Perft perft = new Perft(factory, rounds, graph, configurations,
+				Collections.unmodifiableList(history));
+		perft.moves(perft.history);
+		return perft;
+	}
+
+	/**
+	 * @return the moves played from the start of the game to this state
+	 */
+	public List<Move> history() {
+		return history;
+	}
+
+	/**
+	 * @return the moves available in this state, empty if the game is over
+	 */
+	public Set<Move> moves() {
+		Set<Move> moves = moves(history);
+		return moves == null ? Collections.emptySet() : Collections.unmodifiableSet(moves);
+	}
+
+	/**
+	 * Counts on the calling thread
+	 *
+	 * @param depth number of moves, at least 0
+	 * @return the counts; never null
+	 */
+	public Counts count(int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth " + depth);
+		Counts counts = new Counts();
+		count(new ArrayList<>(history), depth, null, counts);
+		return counts;
+	}
+
+	/**
+	 * Counts with one task per move available at the root
+	 *
+	 * @param depth number of moves, at least 0
+	 * @param pool the pool to run the tasks in; not null
+	 * @return the counts, the same as {@link #count(int)}; never null
+	 */
+	public Counts count(int depth, ForkJoinPool pool) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth " + depth);
+		requireNonNull(pool);
+		if (depth < 2) return count(depth);
+		Set<Move> moves = moves(history);
+		if (moves == null) return count(depth);
+		return pool.invoke(new RecursiveTask<Counts>() {
+
+			@Override
+			protected Counts compute() {
+				List<RecursiveTask<Counts>> tasks = new ArrayList<>();
+				for (Move move : moves) {
+					tasks.add(new RecursiveTask<Counts>() {
+
+						@Override
+						protected Counts compute() {
+							List<Move> line = new ArrayList<>(history);
+							line.add(move);
+							Counts counts = new Counts();
+							count(line, depth - 1, move, counts);
+							return counts;
+						}
+					});
+				}
+				Counts counts = new Counts();
+				for (RecursiveTask<Counts> task : invokeAll(tasks))
+					counts.add(task.join());
+				return counts;
+			}
+		});
+	}
+
+	// line is the history up to the position, it is restored before returning
+	private void count(List<Move> line, int depth, Move last, Counts counts) {
+		if (depth == 0) {
+			counts.leaf(last);
+			return;
+		}
+		Set<Move> moves = moves(line);
+		if (moves == null) {
+			counts.gameOver();
+			return;
+		}
+		if (depth == 1) {
+			for (Move move : moves)
+				counts.leaf(move);
+			return;
+		}
+		for (Move move : moves) {
+			line.add(move);
+			count(line, depth - 1, move, counts);
+			line.remove(line.size() - 1);
+		}
+	}
+
+	/**
+	 * Plays the moves in a new game
+	 *
+	 * @return the moves available afterwards, null if the game is over
+	 */
+	private Set<Move> moves(List<Move> line) {
+		Replay replay = new Replay(line.iterator());
+		ScotlandYardGame game = newGame(replay);
+		while (replay.moves == null) {
+			if (game.isGameOver()) {
+				if (replay.script.hasNext())
+					throw new IllegalArgumentException("Game is over before " + line);
+				return null;
+			}
+			game.startRotate();
+		}
+		return replay.moves;
+	}
+
+	private ScotlandYardGame newGame(Player player) {
+		PlayerConfiguration[] players = new PlayerConfiguration[configurations.size()];
+		for (int i = 0; i < players.length; i++) {
+			PlayerConfiguration configuration = configurations.get(i);
+			players[i] = new PlayerConfiguration.Builder(configuration.colour).using(player)
+					.with(new HashMap<>(configuration.tickets)).at(configuration.location)
+					.build();
+		}
+		return factory.createGame(rounds, graph, players[0], players[1],
+				Arrays.copyOfRange(players, 2, players.length));
+	}
+
+	/**
+	 * Plays a script of moves for every player, then keeps the moves it is
+	 * offered without answering
+	 */
+	private static final class Replay implements Player {
+
+		final Iterator<Move> script;
+		Set<Move> moves;
+
+		Replay(Iterator<Move> script) {
+			this.script = script;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			if (script.hasNext()) callback.accept(script.next());
+			else this.moves = moves;
+		}
+	}
+
+}
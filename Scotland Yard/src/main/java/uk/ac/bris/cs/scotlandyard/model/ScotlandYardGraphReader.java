@@ -1,7 +1,14 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 import uk.ac.bris.cs.gamekit.graph.Edge;
@@ -91,6 +98,38 @@ public class ScotlandYardGraphReader {
 		return new ImmutableGraph<>(graph);
 	}
 
+	/**
+	 * Reads a Scotland Yard game map from a stream of bytes in the same format
+	 * accepted by {@link #fromLines(List)}. The input is tokenized directly
+	 * from bytes one line at a time, so the file is never held in memory as a
+	 * whole
+	 *
+	 * @param stream the stream, not closed by this method; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if reading from the stream fails
+	 * @throws IllegalArgumentException if the input is malformed, with the same
+	 *         messages as {@link #fromLines(List)}
+	 */
+	public static ImmutableGraph<Integer, Transport> fromStream(InputStream stream)
+			throws IOException {
+		if (stream == null) throw new NullPointerException("stream == null");
+		return fromChannel(Channels.newChannel(stream));
+	}
+
+	/**
+	 * Reads a Scotland Yard game map from a channel, see
+	 * {@link #fromStream(InputStream)}
+	 *
+	 * @param channel the channel, not closed by this method; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if reading from the channel fails
+	 */
+	public static ImmutableGraph<Integer, Transport> fromChannel(ReadableByteChannel channel)
+			throws IOException {
+		if (channel == null) throw new NullPointerException("channel == null");
+		return new LineTokenizer(channel).readGraph();
+	}
+
 	private static String[] parseLine(int line, List<String> lines, String delimiter,
 			int expectedSegments) {
 		String currentLine = lines.get(line);
@@ -103,4 +142,201 @@ public class ScotlandYardGraphReader {
 
 	}
 
+
+	/**
+	 * Splits a byte channel into lines and each line into
+	 * {@link #DELIMITER}-separated tokens without creating intermediate
+	 * strings; a line is only decoded when it is reported in an error
+	 */
+	private static final class LineTokenizer {
+
+		private static final byte SEPARATOR = ' ';
+		private static final byte[][] TRANSPORT_NAMES = Arrays.stream(Transport.values())
+				.map(t -> t.name().getBytes(StandardCharsets.US_ASCII))
+				.toArray(byte[][]::new);
+		private static final Transport[] TRANSPORTS = Transport.values();
+
+		private final ReadableByteChannel channel;
+		private final ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+		private boolean endOfInput;
+		private boolean skipLineFeed;
+
+		private byte[] line = new byte[128];
+		private int length;
+		private final int[] starts = new int[4];
+		private final int[] ends = new int[4];
+		private int segments;
+
+		LineTokenizer(ReadableByteChannel channel) {
+			this.channel = Objects.requireNonNull(channel);
+			chunk.flip();
+		}
+
+		ImmutableGraph<Integer, Transport> readGraph() throws IOException {
+			if (!nextLine()) throw new IllegalArgumentException("Lines must not be empty!");
+			split(0, 2);
+			int numberOfNodes;
+			int numberOfEdges;
+			try {
+				numberOfNodes = parseInt(0);
+				numberOfEdges = parseInt(1);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid symbol at line 1:\n\t" + currentLine());
+			}
+
+			UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+
+			// we read the first line already
+			for (int i = 1; i <= numberOfNodes; i++) {
+				expectLine(i);
+				split(i, 1);
+				try {
+					graph.addNode(new Node<>(parseInt(0)));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(
+							"Expected integer at line " + i + "\n\t" + currentLine());
+				}
+			}
+
+			for (int i = numberOfNodes + 1; i <= numberOfNodes + numberOfEdges; i++) {
+				expectLine(i);
+				split(i, 3);
+
+				Node<Integer> source;
+				Node<Integer> destination;
+				try {
+					source = graph.getNode(parseInt(0));
+					destination = graph.getNode(parseInt(1));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(
+							"Expected integer at line " + i + "\n\t" + currentLine());
+				}
+				Transport data = parseTransport(2);
+				if (data == null) throw new IllegalArgumentException(
+						"Expected enum with value of " + Arrays.toString(TRANSPORTS)
+								+ " at line " + i + "\n\t" + currentLine());
+				if (source == null) throw new IllegalArgumentException(
+						"Expected source node to exist in graph  at line " + i + "\n\t"
+								+ currentLine());
+				if (destination == null) throw new IllegalArgumentException(
+						"Expected destination node to exist in graph  at line " + i + "\n\t"
+								+ currentLine());
+				graph.addEdge(new Edge<>(source, destination, data));
+			}
+			return new ImmutableGraph<>(graph);
+		}
+
+		private void expectLine(int index) throws IOException {
+			if (!nextLine())
+				throw new IllegalArgumentException("Line count < (edge count + node count)");
+			if (length == 0)
+				throw new IllegalArgumentException("Expected non-empty line at line " + index);
+		}
+
+		/**
+		 * Reads the next line into {@link #line}, accepting \n, \r and \r\n
+		 * as terminators
+		 *
+		 * @return false if there are no more lines
+		 */
+		private boolean nextLine() throws IOException {
+			length = 0;
+			boolean read = false;
+			while (true) {
+				if (!chunk.hasRemaining()) {
+					if (endOfInput || !fill()) return read;
+				}
+				byte b = chunk.get();
+				if (skipLineFeed) {
+					skipLineFeed = false;
+					if (b == '\n') continue;
+				}
+				if (b == '\n') return true;
+				if (b == '\r') {
+					skipLineFeed = true;
+					return true;
+				}
+				read = true;
+				if (length == line.length) line = Arrays.copyOf(line, length * 2);
+				line[length++] = b;
+			}
+		}
+
+		private boolean fill() throws IOException {
+			chunk.clear();
+			int count;
+			do {
+				count = channel.read(chunk);
+			} while (count == 0);
+			chunk.flip();
+			if (count < 0) endOfInput = true;
+			return count > 0;
+		}
+
+		/**
+		 * Splits the current line the same way {@code String.split} does:
+		 * trailing empty segments are dropped
+		 */
+		private void split(int index, int expectedSegments) {
+			int end = length;
+			while (end > 0 && line[end - 1] == SEPARATOR)
+				end--;
+			segments = 0;
+			int start = 0;
+			for (int i = 0; i <= end; i++) {
+				if (i == end || line[i] == SEPARATOR) {
+					if (segments < starts.length) {
+						starts[segments] = start;
+						ends[segments] = i;
+					}
+					segments++;
+					start = i + 1;
+				}
+			}
+			if (end == 0) segments = length == 0 ? 1 : 0;
+			if (segments != expectedSegments) throw new IllegalArgumentException(
+					"Expected " + expectedSegments + " occurrences of delimiter \"" + DELIMITER
+							+ "\" on line " + index + ":\n\t" + currentLine());
+		}
+
+		private int parseInt(int segment) {
+			int start = starts[segment];
+			int end = ends[segment];
+			if (start == end) throw new NumberFormatException();
+			boolean negative = false;
+			if (line[start] == '-' || line[start] == '+') {
+				negative = line[start] == '-';
+				if (++start == end) throw new NumberFormatException();
+			}
+			long value = 0;
+			for (int i = start; i < end; i++) {
+				int digit = line[i] - '0';
+				if (digit < 0 || digit > 9) throw new NumberFormatException();
+				value = value * 10 + digit;
+				if (value > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException();
+			}
+			if (negative) value = -value;
+			if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+				throw new NumberFormatException();
+			return (int) value;
+		}
+
+		private Transport parseTransport(int segment) {
+			int start = starts[segment];
+			int size = ends[segment] - start;
+			outer: for (int t = 0; t < TRANSPORT_NAMES.length; t++) {
+				byte[] name = TRANSPORT_NAMES[t];
+				if (name.length != size) continue;
+				for (int i = 0; i < size; i++)
+					if (name[i] != line[start + i]) continue outer;
+				return TRANSPORTS[t];
+			}
+			return null;
+		}
+
+		private String currentLine() {
+			return new String(line, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+
 }
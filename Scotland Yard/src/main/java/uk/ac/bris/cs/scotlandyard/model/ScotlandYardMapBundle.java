@@ -0,0 +1,551 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+
+/**
+ * A compiled, versioned binary form of a Scotland Yard map(graph and node
+ * coordinates) that can be memory-mapped instead of parsed. <br>
+ * A bundle is produced with {@link #compile(Graph, Map, OutputStream)} from a
+ * graph created by {@link ScotlandYardGraphReader} and the positions from
+ * {@link StandardGame#pngMapPositionEntries()}, and read back with
+ * {@link #load(Path)}.
+ *
+ * <br>
+ * All sections are stored big-endian, directly after the header:
+ * <ol>
+ * <li>header: magic, version, node count, edge count, adjacency count and
+ * the content hash(see {@link #contentHash(Graph)})</li>
+ * <li>node values in insertion order</li>
+ * <li>node values sorted ascending and their matching node indices, used for
+ * {@link #indexOf(int)}</li>
+ * <li>undirected edges in insertion order as source index, destination index
+ * and transport ordinal</li>
+ * <li>adjacency in CSR form: {@code nodeCount + 1} offsets followed by the
+ * destination index and transport ordinal of each outgoing edge</li>
+ * <li>x and y coordinate per node index, {@link #NO_POSITION} if absent</li>
+ * </ol>
+ */
+public final class ScotlandYardMapBundle {
+
+	/**
+	 * Current version of the bundle format, bundles of other versions are
+	 * rejected
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Coordinate value used for nodes without a position
+	 */
+	public static final int NO_POSITION = Integer.MIN_VALUE;
+
+	private static final int MAGIC = 0x53594D42; // "SYMB"
+	private static final int HEADER_BYTES = 5 * Integer.BYTES + Long.BYTES;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final int nodeCount;
+	private final int edgeCount;
+	private final int adjacencyCount;
+	private final long contentHash;
+
+	private final IntBuffer nodes;
+	private final IntBuffer sortedNodes;
+	private final IntBuffer sortedIndices;
+	private final IntBuffer edgeSources;
+	private final IntBuffer edgeDestinations;
+	private final ByteBuffer edgeTransports;
+	private final IntBuffer offsets;
+	private final IntBuffer targets;
+	private final ByteBuffer transports;
+	private final IntBuffer xs;
+	private final IntBuffer ys;
+
+	private ScotlandYardMapBundle(ByteBuffer buffer) throws IOException {
+		ByteBuffer source = buffer.duplicate();
+		if (source.remaining() < HEADER_BYTES)
+			throw new IOException("Bundle too small, expected at least " + HEADER_BYTES
+					+ " bytes but got " + source.remaining());
+		int magic = source.getInt();
+		if (magic != MAGIC)
+			throw new IOException("Not a map bundle, bad magic " + Integer.toHexString(magic));
+		int version = source.getInt();
+		if (version != VERSION) throw new IOException(
+				"Unsupported bundle version " + version + ", expected " + VERSION);
+		nodeCount = source.getInt();
+		edgeCount = source.getInt();
+		adjacencyCount = source.getInt();
+		contentHash = source.getLong();
+		if (nodeCount < 0 || edgeCount < 0 || adjacencyCount < 0)
+			throw new IOException("Negative section size in bundle header");
+
+		long expected = HEADER_BYTES
+				+ (long) Integer.BYTES * (3L * nodeCount)
+				+ (long) edgeCount * (2 * Integer.BYTES + 1)
+				+ (long) Integer.BYTES * (nodeCount + 1)
+				+ (long) adjacencyCount * (Integer.BYTES + 1)
+				+ (long) Integer.BYTES * (2L * nodeCount);
+		if (source.remaining() + HEADER_BYTES != expected) throw new IOException(
+				"Bundle is truncated or corrupt, expected " + expected + " bytes but got "
+						+ (source.remaining() + HEADER_BYTES));
+
+		nodes = ints(source, nodeCount);
+		sortedNodes = ints(source, nodeCount);
+		sortedIndices = ints(source, nodeCount);
+		edgeSources = ints(source, edgeCount);
+		edgeDestinations = ints(source, edgeCount);
+		edgeTransports = bytes(source, edgeCount);
+		offsets = ints(source, nodeCount + 1);
+		targets = ints(source, adjacencyCount);
+		transports = bytes(source, adjacencyCount);
+		xs = ints(source, nodeCount);
+		ys = ints(source, nodeCount);
+
+		checkIndices(sortedIndices, nodeCount, "sorted node index");
+		checkIndices(edgeSources, nodeCount, "edge source");
+		checkIndices(edgeDestinations, nodeCount, "edge destination");
+		checkIndices(targets, nodeCount, "adjacency target");
+		checkTransports(edgeTransports, "edge transport");
+		checkTransports(transports, "adjacency transport");
+		for (int i = 1; i < nodeCount; i++) {
+			if (sortedNodes.get(i - 1) >= sortedNodes.get(i))
+				throw new IOException("Bundle is corrupt, sorted node values are not ascending");
+		}
+		if (offsets.get(0) != 0 || offsets.get(nodeCount) != adjacencyCount)
+			throw new IOException("Bundle is corrupt, adjacency offsets do not span "
+					+ adjacencyCount + " slots");
+		for (int i = 0; i < nodeCount; i++) {
+			if (offsets.get(i) > offsets.get(i + 1))
+				throw new IOException("Bundle is corrupt, adjacency offset " + i + " decreases");
+		}
+	}
+
+	private static void checkIndices(IntBuffer values, int bound, String section)
+			throws IOException {
+		for (int i = 0; i < values.limit(); i++) {
+			int value = values.get(i);
+			if (value < 0 || value >= bound) throw new IOException("Bundle is corrupt, "
+					+ section + " " + value + " at " + i + " is not in [0, " + bound + ")");
+		}
+	}
+
+	private static void checkTransports(ByteBuffer values, String section) throws IOException {
+		for (int i = 0; i < values.limit(); i++) {
+			int value = values.get(i);
+			if (value < 0 || value >= TRANSPORTS.length) throw new IOException(
+					"Bundle is corrupt, " + section + " " + value + " at " + i
+							+ " is not a transport");
+		}
+	}
+
+	private static IntBuffer ints(ByteBuffer source, int count) {
+		ByteBuffer slice = source.slice();
+		slice.limit(count * Integer.BYTES);
+		source.position(source.position() + count * Integer.BYTES);
+		return slice.asIntBuffer();
+	}
+
+	private static ByteBuffer bytes(ByteBuffer source, int count) {
+		ByteBuffer slice = source.slice();
+		slice.limit(count);
+		source.position(source.position() + count);
+		return slice;
+	}
+
+	/**
+	 * Memory-maps a bundle file, the indices and transports are checked once
+	 * and the rest of the file is only read on access
+	 *
+	 * @param path the bundle file; not null
+	 * @return the bundle; never null
+	 * @throws IOException if the file cannot be read or is not a valid bundle
+	 */
+	public static ScotlandYardMapBundle load(Path path) throws IOException {
+		Objects.requireNonNull(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return new ScotlandYardMapBundle(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Reads a bundle from a buffer, e.g. one that is already mapped or loaded
+	 * from a classpath resource. The buffer's content must not be modified
+	 * while the bundle is in use
+	 *
+	 * @param buffer the buffer, read from its current position; not null
+	 * @return the bundle; never null
+	 * @throws IOException if the buffer does not contain a valid bundle, e.g.
+	 *         a section refers to a node index or transport that does not
+	 *         exist
+	 */
+	public static ScotlandYardMapBundle wrap(ByteBuffer buffer) throws IOException {
+		return new ScotlandYardMapBundle(Objects.requireNonNull(buffer));
+	}
+
+	/**
+	 * Compiles a graph without node positions into a bundle held on the heap
+	 *
+	 * @param graph an undirected graph as created by
+	 *        {@link ScotlandYardGraphReader}; not null
+	 * @return the bundle; never null
+	 * @throws IllegalArgumentException if the graph is not undirected, see
+	 *         {@link #compile(Graph, Map, OutputStream)}
+	 */
+	static ScotlandYardMapBundle of(Graph<Integer, Transport> graph) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try {
+			compile(graph, Collections.emptyMap(), stream);
+			return wrap(ByteBuffer.wrap(stream.toByteArray()));
+		} catch (IOException e) {
+			// writing to memory does not fail, so the bundle itself is invalid
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Compiles a graph and node positions into a bundle file
+	 *
+	 * @see #compile(Graph, Map, OutputStream)
+	 */
+	public static void compile(Graph<Integer, Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions,
+			Path path) throws IOException {
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(path))) {
+			compile(graph, positions, stream);
+		}
+	}
+
+	/**
+	 * Compiles a graph and node positions into a bundle
+	 *
+	 * @param graph an undirected graph as created by
+	 *        {@link ScotlandYardGraphReader}; not null
+	 * @param positions node to (x, y) as returned by
+	 *        {@link StandardGame#pngMapPositionEntries()}; entries for nodes that
+	 *        are not in the graph are ignored; not null
+	 * @param stream the stream to write to, not closed by this method; not
+	 *        null
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if the graph's edges are not in
+	 *         forward and reverse pairs as produced by {@link UndirectedGraph}
+	 */
+	public static void compile(Graph<Integer, Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions,
+			OutputStream stream) throws IOException {
+		Objects.requireNonNull(graph);
+		Objects.requireNonNull(positions);
+		Objects.requireNonNull(stream);
+
+		List<Node<Integer>> nodes = graph.getNodes();
+		Map<Integer, Integer> indices = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++)
+			indices.put(nodes.get(i).value(), i);
+
+		// every undirected edge is stored as itself followed by its swap
+		List<Edge<Integer, Transport>> edges = new ArrayList<>(graph.getEdges());
+		if (edges.size() % 2 != 0)
+			throw new IllegalArgumentException("Graph has an odd number of directed edges");
+		for (int i = 0; i < edges.size(); i += 2) {
+			if (!edges.get(i).swap().equals(edges.get(i + 1))) throw new IllegalArgumentException(
+					"Graph is not undirected, " + edges.get(i + 1) + " is not the reverse of "
+							+ edges.get(i));
+		}
+
+		int[] sorted = nodes.stream().mapToInt(Node::value).sorted().toArray();
+		int adjacencyCount = 0;
+		for (Node<Integer> node : nodes)
+			adjacencyCount += graph.getEdgesFrom(node).size();
+
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(nodes.size());
+		out.writeInt(edges.size() / 2);
+		out.writeInt(adjacencyCount);
+		out.writeLong(contentHash(graph));
+
+		for (Node<Integer> node : nodes)
+			out.writeInt(node.value());
+		for (int value : sorted)
+			out.writeInt(value);
+		for (int value : sorted)
+			out.writeInt(indices.get(value));
+
+		for (int i = 0; i < edges.size(); i += 2)
+			out.writeInt(indices.get(edges.get(i).source().value()));
+		for (int i = 0; i < edges.size(); i += 2)
+			out.writeInt(indices.get(edges.get(i).destination().value()));
+		for (int i = 0; i < edges.size(); i += 2)
+			out.writeByte(edges.get(i).data().ordinal());
+
+		int offset = 0;
+		out.writeInt(offset);
+		for (Node<Integer> node : nodes) {
+			offset += graph.getEdgesFrom(node).size();
+			out.writeInt(offset);
+		}
+		for (Node<Integer> node : nodes)
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+				out.writeInt(indices.get(edge.destination().value()));
+		for (Node<Integer> node : nodes)
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+				out.writeByte(edge.data().ordinal());
+
+		for (Node<Integer> node : nodes) {
+			Entry<Integer, Integer> entry = positions.get(node.value());
+			out.writeInt(entry == null ? NO_POSITION : entry.getKey());
+		}
+		for (Node<Integer> node : nodes) {
+			Entry<Integer, Integer> entry = positions.get(node.value());
+			out.writeInt(entry == null ? NO_POSITION : entry.getValue());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Computes a stable 64-bit hash(FNV-1a) of a graph's content: its node
+	 * values and edges in iteration order. Equal graphs produce equal hashes
+	 * across runs and JVMs
+	 *
+	 * @param graph the graph; not null
+	 * @return the hash
+	 */
+	public static long contentHash(Graph<Integer, Transport> graph) {
+		long hash = FNV_OFFSET;
+		List<Node<Integer>> nodes = graph.getNodes();
+		hash = fnv(hash, nodes.size());
+		for (Node<Integer> node : nodes)
+			hash = fnv(hash, node.value());
+		hash = fnv(hash, graph.getEdges().size());
+		for (Edge<Integer, Transport> edge : graph.getEdges()) {
+			hash = fnv(hash, edge.source().value());
+			hash = fnv(hash, edge.destination().value());
+			hash = fnv(hash, edge.data().ordinal());
+		}
+		return hash;
+	}
+
+	private static long fnv(long hash, int value) {
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			hash ^= (value >>> shift) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the content hash stored in the bundle, equal to
+	 *         {@link #contentHash(Graph)} of the compiled graph
+	 */
+	public long contentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @return number of nodes in the map
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return number of undirected edges in the map
+	 */
+	public int edgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @param index the node index, in [0, {@link #nodeCount()})
+	 * @return the node value(i.e. the location) at the index
+	 */
+	public int nodeValue(int index) {
+		return nodes.get(index);
+	}
+
+	/**
+	 * Finds the index of a node by its value
+	 *
+	 * @param value the node value
+	 * @return the index or -1 if the map has no such node
+	 */
+	public int indexOf(int value) {
+		int low = 0;
+		int high = nodeCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int current = sortedNodes.get(mid);
+			if (current < value) low = mid + 1;
+			else if (current > value) high = mid - 1;
+			else return sortedIndices.get(mid);
+		}
+		return -1;
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the first adjacency slot of the node, see {@link #target(int)}
+	 */
+	public int adjacencyStart(int index) {
+		return offsets.get(index);
+	}
+
+	/**
+	 * @param index the node index
+	 * @return one past the last adjacency slot of the node
+	 */
+	public int adjacencyEnd(int index) {
+		return offsets.get(index + 1);
+	}
+
+	/**
+	 * @param slot the adjacency slot, in
+	 *        [{@link #adjacencyStart(int)}, {@link #adjacencyEnd(int)})
+	 * @return the destination node index of the outgoing edge
+	 */
+	public int target(int slot) {
+		return targets.get(slot);
+	}
+
+	/**
+	 * @param slot the adjacency slot
+	 * @return the transport of the outgoing edge
+	 */
+	public Transport transport(int slot) {
+		return TRANSPORTS[transports.get(slot)];
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the x coordinate of the node or {@link #NO_POSITION}
+	 */
+	public int x(int index) {
+		return xs.get(index);
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the y coordinate of the node or {@link #NO_POSITION}
+	 */
+	public int y(int index) {
+		return ys.get(index);
+	}
+
+	/**
+	 * Recomputes the content hash from the bundle's edges and compares it to
+	 * the stored one
+	 *
+	 * @return true if the bundle content matches its hash
+	 */
+	public boolean verify() {
+		long hash = FNV_OFFSET;
+		hash = fnv(hash, nodeCount);
+		for (int i = 0; i < nodeCount; i++)
+			hash = fnv(hash, nodes.get(i));
+		hash = fnv(hash, edgeCount * 2);
+		for (int i = 0; i < edgeCount; i++) {
+			int source = nodes.get(edgeSources.get(i));
+			int destination = nodes.get(edgeDestinations.get(i));
+			int transport = edgeTransports.get(i);
+			hash = fnv(fnv(fnv(hash, source), destination), transport);
+			hash = fnv(fnv(fnv(hash, destination), source), transport);
+		}
+		return hash == contentHash;
+	}
+
+	/**
+	 * Rebuilds the graph, the result is equal to the graph the bundle was
+	 * compiled from
+	 *
+	 * @return a new immutable graph; never null
+	 */
+	public ImmutableGraph<Integer, Transport> toGraph() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		List<Node<Integer>> created = new ArrayList<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			Node<Integer> node = new Node<>(nodes.get(i));
+			created.add(node);
+			graph.addNode(node);
+		}
+		for (int i = 0; i < edgeCount; i++) {
+			graph.addEdge(new Edge<>(
+					created.get(edgeSources.get(i)),
+					created.get(edgeDestinations.get(i)),
+					TRANSPORTS[edgeTransports.get(i)]));
+		}
+		return new ImmutableGraph<>(graph);
+	}
+
+	/**
+	 * Rebuilds the node positions in the same form as
+	 * {@link StandardGame#pngMapPositionEntries()}
+	 *
+	 * @return an immutable map of node to (x, y); never null
+	 */
+	public Map<Integer, Entry<Integer, Integer>> positionEntries() {
+		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
+		for (int i = 0; i < nodeCount; i++) {
+			if (xs.get(i) == NO_POSITION) continue;
+			map.put(nodes.get(i), new SimpleImmutableEntry<>(xs.get(i), ys.get(i)));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public String toString() {
+		return "ScotlandYardMapBundle{nodes=" + nodeCount + ", edges=" + edgeCount
+				+ ", hash=" + Long.toHexString(contentHash) + "}";
+	}
+
+	/**
+	 * Compiles a bundle from text files <br>
+	 * Usage: {@code ScotlandYardMapBundle <graph.txt> <pos.txt> <output>}
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: ScotlandYardMapBundle <graph.txt> <pos.txt> <output>");
+			System.exit(1);
+		}
+		ImmutableGraph<Integer, Transport> graph;
+		try (InputStream stream = Files.newInputStream(Paths.get(args[0]))) {
+			graph = ScotlandYardGraphReader.fromStream(stream);
+		}
+		Map<Integer, Entry<Integer, Integer>> positions = StandardGame
+				.parsePositionEntries(Files.readAllLines(Paths.get(args[1])));
+		Path output = Paths.get(args[2]);
+		compile(graph, positions, output);
+		System.out.println("Compiled " + load(output) + " to " + output);
+	}
+
+}
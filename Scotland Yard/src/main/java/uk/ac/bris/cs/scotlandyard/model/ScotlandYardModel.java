@@ -20,6 +20,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 
 	private List <Boolean> 						rounds;
 	private Graph <Integer, Transport> 			graph;
+	private ImmutableGraph <Integer, Transport>	immutableGraph;
 	private ScotlandYardPlayer					mrX;
 	private LinkedList <Spectator>				spectators;
 	private ListIterator <ScotlandYardPlayer>	currentPlayer;
@@ -28,6 +29,8 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 	private int									currentRound;
 	private int									mrXLastKnownLocation;
 	private boolean                             currentRotationComplete;
+	private ModelMetrics                        metrics;
+	private volatile long                       thinkStart;
 
 	public ScotlandYardModel(List<Boolean> rounds, Graph<Integer, Transport> graph,
 			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
@@ -51,6 +54,12 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 			throw new IllegalArgumentException("Empty graph");
 		}
 
+		// Hand out the same immutable view on every call so that it can be used
+		// as a key for shared per-map data, see MapContextRegistry
+		this.immutableGraph = (graph instanceof ImmutableGraph)
+							  ? (ImmutableGraph <Integer, Transport>) graph
+							  : new ImmutableGraph <> (graph);
+
 		// Check if mrX is null
 		this.mrX = new ScotlandYardPlayer(Objects.requireNonNull(mrX).player,
 									  	  mrX.colour,
@@ -128,6 +137,24 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 		currentRotationComplete = false;
 	}
 
+	// Input: metrics (ModelMetrics)
+	// Preconditions: -
+	// Output: -
+	// Postconditions: Counts and timings of this game are recorded into metrics from now on,
+	//                 nothing is recorded if metrics is null
+	public void
+	setMetrics(ModelMetrics metrics)
+	{
+		this.metrics = metrics;
+		thinkStart = 0;
+	}
+
+	public ModelMetrics
+	getMetrics()
+	{
+		return metrics;
+	}
+
 	// Input: spectator (Spectator)
 	// Preconditions: spectator is not null and is not already registered
 	// Output: spectators (LinkedList <Spectator>
@@ -172,6 +199,8 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 	public void
 	startRotate() {
 		ScotlandYardPlayer playerToMove;
+		Set <Move>         moves;
+		long               start;
 
 		playerToMove = getPlayer(getCurrentPlayer());
 
@@ -180,9 +209,22 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
             throw new IllegalStateException("Game is already over");
         }
 
+		// Only the moves offered to players are counted, checks of the model
+		// are part of the phase they are made in
+		start = now();
+		moves = getAvailableMoves(playerToMove);
+		if (null != metrics)
+		{
+			record(ModelMetrics.Phase.AVAILABLE_MOVES, start);
+			metrics.increment(ModelMetrics.Counter.GENERATIONS);
+			metrics.add(ModelMetrics.Counter.MOVES_GENERATED, moves.size());
+			// Players may answer from another thread, thinkStart is volatile
+			thinkStart = System.nanoTime();
+		}
+
 		playerToMove.player().makeMove(this,
 							  		   playerToMove.location(),
-									   getAvailableMoves(playerToMove),
+									   moves,
 							  		   this);
 	}
 
@@ -193,6 +235,14 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 		HashSet <Move> 		availableMoves;
 		Move                hiddenMove;
 		ScotlandYardPlayer 	player;
+		long                start;
+
+		start = now();
+		if (0 != thinkStart)
+		{
+			record(ModelMetrics.Phase.THINK, thinkStart);
+			thinkStart = 0;
+		}
 
 		if (null == move)
 		{
@@ -281,9 +331,12 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
             else
             {
                 currentRotationComplete = false;
+                record(ModelMetrics.Phase.ACCEPT, start);
                 startRotate();
+                return;
             }
         }
+        record(ModelMetrics.Phase.ACCEPT, start);
 	}
 
 	@Override
@@ -334,7 +387,19 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 
 	@Override
 	public boolean isGameOver() {
-		// TODO
+		long    start;
+		boolean gameOver;
+
+		start = now();
+		gameOver = checkGameOver();
+		record(ModelMetrics.Phase.GAME_OVER, start);
+		return gameOver;
+	}
+
+	// Returns true if the game is over and updates the winning players
+	private boolean
+	checkGameOver()
+	{
  
         if ( (isLocationOccupiedByDetective(mrX.location())) ||
              ((isMrXColour(getCurrentPlayer())) &&
@@ -392,7 +457,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 
 	@Override
 	public ImmutableGraph<Integer, Transport> getGraph() {
-		return new ImmutableGraph(graph);
+		return immutableGraph;
 	}
 
 
@@ -639,43 +704,72 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer <Move> {
 	private void
 	notifySpectatorsMoveMade(Move move)
 	{
+		long start = now();
+
 		for (Spectator spectator : spectators)
 		{	
 			spectator.onMoveMade(this,
 								 move);
 		}
+		record(ModelMetrics.Phase.SPECTATORS, start);
 	}
 
 	// Notifies the spectators on round started
 	private void
 	notifySpectatorsRoundStarted()
 	{
+		long start = now();
+
 		for (Spectator spectator : spectators)
 		{
 			spectator.onRoundStarted(this,
 									 currentRound);
 		}
+		record(ModelMetrics.Phase.SPECTATORS, start);
 	}
 
 	// Notifies the spectators on game over
 	private void
 	notifySpectatorsGameOver(Set <Colour> winningPlayers)
 	{
+		long start = now();
+
 		for (Spectator spectator : spectators)
 		{
 			spectator.onGameOver(this,
 								 winningPlayers);
 		}
+		record(ModelMetrics.Phase.SPECTATORS, start);
 	}
 
 	// Notifies the spectators on rotation complete
 	private void
 	notifySpectatorsRotationComplete()
 	{
+		long start = now();
+
 		for (Spectator spectator : spectators)
 		{
 			spectator.onRotationComplete(this);
 		}
+		record(ModelMetrics.Phase.SPECTATORS, start);
+	}
+
+	// Returns the current time if metrics are recorded, 0 otherwise
+	private long
+	now()
+	{
+		return (null == metrics) ? 0 : System.nanoTime();
+	}
+
+	// Records the time since start if metrics are recorded and were when start was taken
+	private void
+	record(ModelMetrics.Phase phase, long start)
+	{
+		if ((null != metrics) && (0 != start))
+		{
+			metrics.record(phase, System.nanoTime() - start);
+		}
 	}
 
 	// Update MrX's last known location if it's reveal round
@@ -136,7 +136,18 @@ public class StandardGame {
 	public static final int MAP_OFFSET = 60;
 
 	public static Map<Integer, Entry<Integer, Integer>> pngMapPositionEntries() throws IOException {
-		List<String> lines = readString("pos.txt");
+		return parsePositionEntries(readString("pos.txt"));
+	}
+
+	/**
+	 * Parses lines in the format of {@code pos.txt} into a map of node to
+	 * pixel coordinates with {@link #MAP_OFFSET} applied; lines that do not
+	 * contain exactly three values(e.g. the count header) are skipped
+	 *
+	 * @param lines the lines; not null
+	 * @return an immutable map of node to (x, y); never null
+	 */
+	static Map<Integer, Entry<Integer, Integer>> parsePositionEntries(List<String> lines) {
 		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
 		for (String line : lines) {
 			Integer[] values = Stream.of(line.split("\\s+")).map(Integer::parseInt)
@@ -151,7 +162,12 @@ public class StandardGame {
 	}
 
 	public static ImmutableGraph<Integer, Transport> standardGraph() throws IOException {
-		return ScotlandYardGraphReader.fromLines(readString("graph.txt"));
+		try (InputStream stream = StandardGame.class
+				.getClassLoader()
+				.getResourceAsStream("graph.txt")) {
+			if (stream == null) throw new IOException("Resource graph.txt not found");
+			return ScotlandYardGraphReader.fromStream(stream);
+		}
 	}
 
 	private static List<String> readString(String resource) throws IOException {
@@ -14,4 +14,13 @@ public interface GameControl extends Spectator {
 
 	default void onGameDetached() {}
 
+	/**
+	 * @return true if only the latest of several moves made in quick
+	 *         succession needs to be shown, i.e. the control only renders the
+	 *         state of the view
+	 */
+	default boolean coalesceMoves() {
+		return false;
+	}
+
 }
@@ -0,0 +1,248 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javafx.geometry.Point2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.paint.Color;
+import uk.ac.bris.cs.scotlandyard.NodeCoordinates;
+import uk.ac.bris.cs.scotlandyard.ResourceManager;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+
+/**
+ * Overlay rendering one value per node as a heatmap, e.g. Mr X belief or
+ * visit frequency <br>
+ * Each node with a value above 0 is drawn as a soft disc, overlapping discs
+ * take the highest value, and values in [0, 1] are mapped through a colour
+ * ramp. Everything is rendered on the CPU into a single
+ * {@link WritableImage}, at a fraction of the map resolution, that this view
+ * scales up to the map size. <br>
+ * Updates are incremental: only the pixels around nodes whose value changed
+ * are recomputed, using the spatial index to find the nodes that cover them.
+ * Must be used on the JavaFX thread, like any other node.
+ */
+public class HeatmapLayer extends ImageView {
+
+	/**
+	 * Default disc radius, in map pixels
+	 */
+	public static final double DEFAULT_RADIUS = 40;
+
+	/**
+	 * Default ratio of map pixels to heatmap pixels
+	 */
+	public static final int DEFAULT_DOWNSCALE = 4;
+
+	private static final WritablePixelFormat<IntBuffer> ARGB = PixelFormat.getIntArgbPreInstance();
+	private static final int RAMP_SIZE = 256;
+
+	private final NodeCoordinates coordinates;
+	private final int downscale;
+	private final double radius;
+	private final WritableImage image;
+	private final float[] values;
+	private int[] ramp;
+
+	/**
+	 * @param provider provides the node coordinates and map size
+	 */
+	public HeatmapLayer(ResourceProvider provider) {
+		this(coordinatesOf(provider), provider.getMap().getWidth(),
+				provider.getMap().getHeight(), DEFAULT_DOWNSCALE, DEFAULT_RADIUS);
+	}
+
+	/**
+	 * @param coordinates the node coordinates
+	 * @param width map width
+	 * @param height map height
+	 * @param downscale map pixels per heatmap pixel, must be &gt; 0
+	 * @param radius disc radius in map pixels, must be &gt; 0
+	 */
+	public HeatmapLayer(NodeCoordinates coordinates, double width, double height, int downscale,
+			double radius) {
+		if (downscale < 1) throw new IllegalArgumentException("downscale must be > 0");
+		if (!(radius > 0)) throw new IllegalArgumentException("radius must be > 0");
+		this.coordinates = requireNonNull(coordinates);
+		this.downscale = downscale;
+		this.radius = radius;
+		this.image = new WritableImage(Math.max(1, (int) Math.ceil(width / downscale)),
+				Math.max(1, (int) Math.ceil(height / downscale)));
+		this.values = new float[coordinates.maxNode() + 1];
+		this.ramp = ramp(Color.TRANSPARENT, Color.BLUE, Color.CYAN, Color.YELLOW, Color.RED);
+		setImage(image);
+		setFitWidth(width);
+		setFitHeight(height);
+		setSmooth(true);
+		setMouseTransparent(true);
+	}
+
+	private static NodeCoordinates coordinatesOf(ResourceProvider provider) {
+		if (provider instanceof ResourceManager)
+			return ((ResourceManager) provider).getNodeCoordinates();
+		int[] ids = provider.getGraph().getNodes().stream()
+				.mapToInt(n -> n.value())
+				.filter(n -> provider.coordinateAtNode(n) != null)
+				.toArray();
+		double[] xs = new double[ids.length];
+		double[] ys = new double[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			Point2D point = provider.coordinateAtNode(ids[i]);
+			xs[i] = point.getX();
+			ys[i] = point.getY();
+		}
+		return NodeCoordinates.of(ids, xs, ys);
+	}
+
+	/**
+	 * Sets the colour ramp, values are interpolated evenly between the stops
+	 *
+	 * @param stops at least two colours, from value 0 to value 1
+	 */
+	public void setRamp(Color... stops) {
+		this.ramp = ramp(stops);
+		redraw(0, 0, (int) image.getWidth(), (int) image.getHeight());
+	}
+
+	private static int[] ramp(Color... stops) {
+		if (stops.length < 2) throw new IllegalArgumentException("Need at least two stops");
+		int[] ramp = new int[RAMP_SIZE];
+		for (int i = 0; i < RAMP_SIZE; i++) {
+			double t = (double) i / (RAMP_SIZE - 1) * (stops.length - 1);
+			int stop = Math.min((int) t, stops.length - 2);
+			Color colour = stops[stop].interpolate(stops[stop + 1], t - stop);
+			double alpha = colour.getOpacity();
+			ramp[i] = (int) Math.round(alpha * 255) << 24
+					| (int) Math.round(colour.getRed() * alpha * 255) << 16
+					| (int) Math.round(colour.getGreen() * alpha * 255) << 8
+					| (int) Math.round(colour.getBlue() * alpha * 255);
+		}
+		return ramp;
+	}
+
+	/**
+	 * @return the value of the node, 0 if none was set
+	 */
+	public float getValue(int node) {
+		return node >= 0 && node < values.length ? values[node] : 0;
+	}
+
+	/**
+	 * Sets the value of a single node
+	 *
+	 * @param value in [0, 1], clamped; 0 or NaN removes the node
+	 */
+	public void setValue(int node, float value) {
+		if (!coordinates.contains(node)) return;
+		float clamped = clamp(value);
+		if (values[node] == clamped) return;
+		values[node] = clamped;
+		redrawAround(coordinates.x(node), coordinates.y(node), coordinates.x(node),
+				coordinates.y(node));
+	}
+
+	/**
+	 * Sets the values of all nodes, redrawing only around those that changed
+	 *
+	 * @param values value per node, indexed by node; nodes past the end get 0
+	 */
+	public void setValues(float[] values) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int node = 0; node < this.values.length; node++) {
+			float value = clamp(node < values.length ? values[node] : 0);
+			if (this.values[node] == value || !coordinates.contains(node)) continue;
+			this.values[node] = value;
+			double x = coordinates.x(node);
+			double y = coordinates.y(node);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		if (minX <= maxX) redrawAround(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Removes all values
+	 */
+	public void clear() {
+		setValues(new float[0]);
+	}
+
+	private static float clamp(float value) {
+		if (!(value > 0)) return 0;
+		return Math.min(value, 1);
+	}
+
+	// redraws everything the discs of nodes in the given map area touch
+	private void redrawAround(double minX, double minY, double maxX, double maxY) {
+		int width = (int) image.getWidth();
+		int height = (int) image.getHeight();
+		int x0 = Math.max(0, (int) Math.floor((minX - radius) / downscale));
+		int y0 = Math.max(0, (int) Math.floor((minY - radius) / downscale));
+		int x1 = Math.min(width, (int) Math.ceil((maxX + radius) / downscale) + 1);
+		int y1 = Math.min(height, (int) Math.ceil((maxY + radius) / downscale) + 1);
+		if (x0 < x1 && y0 < y1) redraw(x0, y0, x1, y1);
+	}
+
+	// recomputes the heatmap pixels [x0, x1) x [y0, y1)
+	private void redraw(int x0, int y0, int x1, int y1) {
+		int width = x1 - x0;
+		int height = y1 - y0;
+		float[] heat = new float[width * height];
+		// every node whose disc reaches into the region
+		int[] nodes = coordinates.inside(x0 * downscale - radius, y0 * downscale - radius,
+				x1 * downscale + radius, y1 * downscale + radius);
+		double scaledRadius = radius / downscale;
+		for (int node : nodes) {
+			float value = values[node];
+			if (value == 0) continue;
+			double cx = coordinates.x(node) / downscale;
+			double cy = coordinates.y(node) / downscale;
+			int fromX = Math.max(x0, (int) Math.floor(cx - scaledRadius));
+			int toX = Math.min(x1 - 1, (int) Math.ceil(cx + scaledRadius));
+			int fromY = Math.max(y0, (int) Math.floor(cy - scaledRadius));
+			int toY = Math.min(y1 - 1, (int) Math.ceil(cy + scaledRadius));
+			for (int y = fromY; y <= toY; y++) {
+				double dy = (y + 0.5 - cy) / scaledRadius;
+				for (int x = fromX; x <= toX; x++) {
+					double dx = (x + 0.5 - cx) / scaledRadius;
+					double d2 = dx * dx + dy * dy;
+					if (d2 >= 1) continue;
+					// smooth falloff, 1 at the centre and 0 at the edge
+					double falloff = (1 - d2) * (1 - d2);
+					float h = (float) (value * falloff);
+					int i = (y - y0) * width + (x - x0);
+					if (h > heat[i]) heat[i] = h;
+				}
+			}
+		}
+		int[] pixels = new int[heat.length];
+		int[] ramp = this.ramp;
+		for (int i = 0; i < heat.length; i++)
+			pixels[i] = ramp[Math.round(heat[i] * (RAMP_SIZE - 1))];
+		image.getPixelWriter().setPixels(x0, y0, width, height, ARGB, pixels, 0, width);
+	}
+
+	/**
+	 * @return the image the heatmap is rendered to
+	 */
+	public Image heatmap() {
+		return image;
+	}
+
+	/**
+	 * @return a copy of the values, indexed by node
+	 */
+	public float[] getValues() {
+		return Arrays.copyOf(values, values.length);
+	}
+
+}
@@ -27,6 +27,7 @@ public class MapPreviewPane extends Pane {
 	private final Pane annotations = new Pane();
 	private final Pane mask = new Pane();
 	private final ResourceManager manager;
+	private HeatmapLayer heatmap;
 
 	public MapPreviewPane(ResourceManager manager) {
 		this.manager = manager;
@@ -93,6 +94,17 @@ public class MapPreviewPane extends Pane {
 
 	}
 
+	/**
+	 * @return the heatmap drawn above the shaded map, created on first use
+	 */
+	public HeatmapLayer heatmap() {
+		if (heatmap == null) {
+			heatmap = new HeatmapLayer(manager);
+			getChildren().add(getChildren().indexOf(annotations), heatmap);
+		}
+		return heatmap;
+	}
+
 	private void clearHighlights() {
 		mask.setVisible(false);
 	}
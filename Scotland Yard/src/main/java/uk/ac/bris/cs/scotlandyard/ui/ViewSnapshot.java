@@ -0,0 +1,139 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * An immutable copy of a {@link ScotlandYardView} <br>
+ * Lets spectators that run on another thread (e.g. the JavaFX thread) read a
+ * consistent state while the model keeps advancing. The graph is shared, not
+ * copied. Whether the game is over is given rather than asked, as the model
+ * works it out by generating Mr X's moves.
+ */
+public final class ViewSnapshot implements ScotlandYardView {
+
+	private final List<Colour> players;
+	private final Set<Colour> winningPlayers;
+	private final Map<Colour, Integer> locations = new EnumMap<>(Colour.class);
+	private final Map<Colour, int[]> tickets = new EnumMap<>(Colour.class);
+	private final boolean gameOver;
+	private final Colour currentPlayer;
+	private final int currentRound;
+	private final boolean revealRound;
+	private final List<Boolean> rounds;
+	private final Graph<Integer, Transport> graph;
+
+	private ViewSnapshot(ScotlandYardView view, Set<Colour> winningPlayers) {
+		players = ImmutableList.copyOf(view.getPlayers());
+		gameOver = !winningPlayers.isEmpty();
+		this.winningPlayers = ImmutableSet.copyOf(winningPlayers);
+		for (Colour colour : players) {
+			locations.put(colour, view.getPlayerLocation(colour));
+			int[] counts = new int[Ticket.values().length];
+			for (Ticket ticket : Ticket.values())
+				counts[ticket.ordinal()] = view.getPlayerTickets(colour, ticket);
+			tickets.put(colour, counts);
+		}
+		currentPlayer = view.getCurrentPlayer();
+		currentRound = view.getCurrentRound();
+		revealRound = view.isRevealRound();
+		rounds = ImmutableList.copyOf(view.getRounds());
+		graph = view.getGraph();
+	}
+
+	private ViewSnapshot(ViewSnapshot snapshot, int currentRound, boolean revealRound) {
+		players = snapshot.players;
+		winningPlayers = snapshot.winningPlayers;
+		locations.putAll(snapshot.locations);
+		tickets.putAll(snapshot.tickets);
+		gameOver = snapshot.gameOver;
+		currentPlayer = snapshot.currentPlayer;
+		this.currentRound = currentRound;
+		this.revealRound = revealRound;
+		rounds = snapshot.rounds;
+		graph = snapshot.graph;
+	}
+
+	/**
+	 * @param view the view to copy; must not be modified while copying
+	 * @param winningPlayers the winners if the game is over, empty otherwise
+	 * @return a snapshot of the view, or the view itself if it is a snapshot
+	 */
+	public static ViewSnapshot of(ScotlandYardView view, Set<Colour> winningPlayers) {
+		if (view instanceof ViewSnapshot) return (ViewSnapshot) view;
+		return new ViewSnapshot(view, winningPlayers);
+	}
+
+	/**
+	 * @return this snapshot as it was in another round, everything else
+	 *         unchanged
+	 */
+	public ViewSnapshot atRound(int currentRound, boolean revealRound) {
+		if (this.currentRound == currentRound && this.revealRound == revealRound) return this;
+		return new ViewSnapshot(this, currentRound, revealRound);
+	}
+
+	@Override
+	public List<Colour> getPlayers() {
+		return players;
+	}
+
+	@Override
+	public Set<Colour> getWinningPlayers() {
+		return winningPlayers;
+	}
+
+	@Override
+	public int getPlayerLocation(Colour colour) {
+		Integer location = locations.get(colour);
+		return location == null ? -1 : location;
+	}
+
+	@Override
+	public int getPlayerTickets(Colour colour, Ticket ticket) {
+		int[] counts = tickets.get(colour);
+		return counts == null ? -1 : counts[ticket.ordinal()];
+	}
+
+	@Override
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	@Override
+	public Colour getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	@Override
+	public int getCurrentRound() {
+		return currentRound;
+	}
+
+	@Override
+	public boolean isRevealRound() {
+		return revealRound;
+	}
+
+	@Override
+	public List<Boolean> getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+}
@@ -0,0 +1,309 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * Draws move history and action cues onto one retained {@link Canvas} instead
+ * of adding nodes to the scene graph. <br>
+ * Every change marks the rectangle it affects as dirty. Once per pulse the
+ * union of the dirty rectangles is cleared and only what intersects it is
+ * redrawn. History segments are bucketed into a grid of square cells, so a
+ * redraw only visits the segments in the cells under the dirty rectangle and
+ * appending a move depends on the history around it rather than its length.
+ * Cues are animated by redrawing their own rectangles; the timer stops once
+ * nothing is dirty and no cue is left. <br>
+ * History is kept per track, e.g. one per colour, so several games can be
+ * overlaid by using distinct tracks. Must be used on the FX thread.
+ */
+final class AnnotationLayer {
+
+	private static final double HISTORY_WIDTH = 30;
+	private static final double HISTORY_OPACITY = 0.5;
+	private static final double CUE_RADIUS = 10;
+	private static final double CUE_SCALE = 10;
+	private static final double CUE_OPACITY = 0.5;
+	private static final long CUE_PERIOD = 1_000_000_000L;
+	private static final double GRID_CELL = 256;
+
+	private final Canvas canvas;
+	private final Map<Object, Track> tracks = new LinkedHashMap<>();
+	private final List<Cue> cues = new ArrayList<>();
+	private final BooleanProperty historyVisible = new SimpleBooleanProperty(true);
+	private final AnimationTimer timer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			redraw(now);
+		}
+	};
+
+	private double dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+	private boolean dirty;
+	private boolean cuesVisible = true;
+
+	AnnotationLayer(Canvas canvas) {
+		this.canvas = requireNonNull(canvas);
+		historyVisible.addListener((o, p, n) -> markAllDirty());
+	}
+
+	BooleanProperty historyVisibleProperty() {
+		return historyVisible;
+	}
+
+	void resize(double width, double height) {
+		canvas.setWidth(width);
+		canvas.setHeight(height);
+		markAllDirty();
+	}
+
+	/**
+	 * Extends the history of a track to the given point
+	 */
+	void appendHistory(Object track, Color colour, Point2D point) {
+		Track history = tracks.computeIfAbsent(track, t -> new Track(colour));
+		history.add(point.getX(), point.getY());
+		if (history.count > 1 && historyVisible.get()) {
+			int i = history.count - 1;
+			markDirty(Math.min(history.xs[i - 1], history.xs[i]) - HISTORY_WIDTH,
+					Math.min(history.ys[i - 1], history.ys[i]) - HISTORY_WIDTH,
+					Math.max(history.xs[i - 1], history.xs[i]) + HISTORY_WIDTH,
+					Math.max(history.ys[i - 1], history.ys[i]) + HISTORY_WIDTH);
+		}
+	}
+
+	void clearHistory() {
+		tracks.clear();
+		markAllDirty();
+	}
+
+	void addCue(Point2D point) {
+		cues.add(new Cue(point.getX(), point.getY(), System.nanoTime()));
+		timer.start();
+	}
+
+	void clearCues() {
+		for (Cue cue : cues)
+			markCueDirty(cue);
+		cues.clear();
+	}
+
+	/**
+	 * Hides or shows the cues without removing them
+	 */
+	void setCuesVisible(boolean visible) {
+		if (visible == cuesVisible) return;
+		cuesVisible = visible;
+		for (Cue cue : cues)
+			markCueDirty(cue);
+	}
+
+	private void markCueDirty(Cue cue) {
+		double extent = CUE_RADIUS * CUE_SCALE;
+		markDirty(cue.x - extent, cue.y - extent, cue.x + extent, cue.y + extent);
+	}
+
+	private void markAllDirty() {
+		markDirty(0, 0, canvas.getWidth(), canvas.getHeight());
+	}
+
+	private void markDirty(double minX, double minY, double maxX, double maxY) {
+		if (!dirty) {
+			dirtyMinX = minX;
+			dirtyMinY = minY;
+			dirtyMaxX = maxX;
+			dirtyMaxY = maxY;
+			dirty = true;
+		} else {
+			dirtyMinX = Math.min(dirtyMinX, minX);
+			dirtyMinY = Math.min(dirtyMinY, minY);
+			dirtyMaxX = Math.max(dirtyMaxX, maxX);
+			dirtyMaxY = Math.max(dirtyMaxY, maxY);
+		}
+		timer.start();
+	}
+
+	private void redraw(long now) {
+		if (cuesVisible) {
+			for (Cue cue : cues)
+				markCueDirty(cue);
+		}
+		if (!dirty) {
+			timer.stop();
+			return;
+		}
+		double minX = Math.max(0, Math.floor(dirtyMinX));
+		double minY = Math.max(0, Math.floor(dirtyMinY));
+		double maxX = Math.min(canvas.getWidth(), Math.ceil(dirtyMaxX));
+		double maxY = Math.min(canvas.getHeight(), Math.ceil(dirtyMaxY));
+		dirty = false;
+		if (maxX <= minX || maxY <= minY) return;
+		Bounds region = new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.save();
+		gc.beginPath();
+		gc.rect(minX, minY, maxX - minX, maxY - minY);
+		gc.clip();
+		gc.clearRect(minX, minY, maxX - minX, maxY - minY);
+		if (historyVisible.get()) {
+			for (Track track : tracks.values())
+				track.draw(gc, region);
+		}
+		if (cuesVisible) {
+			for (Cue cue : cues)
+				cue.draw(gc, now);
+		}
+		gc.restore();
+	}
+
+	private static final class Track {
+
+		private final Color colour;
+		private double[] xs = new double[16];
+		private double[] ys = new double[16];
+		private int count;
+		// segment i joins point i - 1 to point i
+		private final Map<Long, Bucket> grid = new HashMap<>();
+		private int[] visible = new int[16];
+
+		Track(Color colour) {
+			this.colour = colour;
+		}
+
+		void add(double x, double y) {
+			if (count == xs.length) {
+				xs = Arrays.copyOf(xs, count * 2);
+				ys = Arrays.copyOf(ys, count * 2);
+			}
+			xs[count] = x;
+			ys[count] = y;
+			count++;
+			if (count > 1) index(count - 1);
+		}
+
+		private void index(int segment) {
+			double margin = HISTORY_WIDTH / 2;
+			int minColumn = cell(Math.min(xs[segment - 1], xs[segment]) - margin);
+			int minRow = cell(Math.min(ys[segment - 1], ys[segment]) - margin);
+			int maxColumn = cell(Math.max(xs[segment - 1], xs[segment]) + margin);
+			int maxRow = cell(Math.max(ys[segment - 1], ys[segment]) + margin);
+			for (int column = minColumn; column <= maxColumn; column++)
+				for (int row = minRow; row <= maxRow; row++)
+					grid.computeIfAbsent(key(column, row), k -> new Bucket()).add(segment);
+		}
+
+		/**
+		 * Collects the segments in the cells under the region, sorted and
+		 * possibly with duplicates
+		 *
+		 * @return the number of entries in {@link #visible}
+		 */
+		private int collect(Bounds region) {
+			int size = 0;
+			for (int column = cell(region.getMinX()); column <= cell(region.getMaxX()); column++) {
+				for (int row = cell(region.getMinY()); row <= cell(region.getMaxY()); row++) {
+					Bucket bucket = grid.get(key(column, row));
+					if (bucket == null) continue;
+					if (size + bucket.size > visible.length)
+						visible = Arrays.copyOf(visible, Math.max(visible.length * 2,
+								size + bucket.size));
+					System.arraycopy(bucket.segments, 0, visible, size, bucket.size);
+					size += bucket.size;
+				}
+			}
+			Arrays.sort(visible, 0, size);
+			return size;
+		}
+
+		void draw(GraphicsContext gc, Bounds region) {
+			int size = collect(region);
+			if (size == 0) return;
+			gc.setStroke(colour);
+			gc.setGlobalAlpha(HISTORY_OPACITY);
+			gc.setLineWidth(HISTORY_WIDTH);
+			gc.setLineCap(StrokeLineCap.ROUND);
+			gc.setLineJoin(StrokeLineJoin.ROUND);
+			// one path so overlapping segments do not add up their opacity
+			gc.beginPath();
+			int previous = 0;
+			int drawn = 0;
+			double margin = HISTORY_WIDTH / 2;
+			for (int j = 0; j < size; j++) {
+				int i = visible[j];
+				if (i == previous) continue;
+				previous = i;
+				double minX = Math.min(xs[i - 1], xs[i]) - margin;
+				double minY = Math.min(ys[i - 1], ys[i]) - margin;
+				double maxX = Math.max(xs[i - 1], xs[i]) + margin;
+				double maxY = Math.max(ys[i - 1], ys[i]) + margin;
+				if (!region.intersects(minX, minY, maxX - minX, maxY - minY)) continue;
+				if (drawn != i - 1 || drawn == 0) gc.moveTo(xs[i - 1], ys[i - 1]);
+				gc.lineTo(xs[i], ys[i]);
+				drawn = i;
+			}
+			gc.stroke();
+			gc.setGlobalAlpha(1);
+		}
+
+		private static int cell(double coordinate) {
+			return (int) Math.floor(coordinate / GRID_CELL);
+		}
+
+		private static long key(int column, int row) {
+			return (long) column << 32 | row & 0xFFFFFFFFL;
+		}
+	}
+
+	private static final class Bucket {
+
+		private int[] segments = new int[8];
+		private int size;
+
+		void add(int segment) {
+			if (size == segments.length) segments = Arrays.copyOf(segments, size * 2);
+			segments[size++] = segment;
+		}
+	}
+
+	private static final class Cue {
+
+		private final double x, y;
+		private final long start;
+
+		Cue(double x, double y, long start) {
+			this.x = x;
+			this.y = y;
+			this.start = start;
+		}
+
+		void draw(GraphicsContext gc, long now) {
+			double t = (double) Math.floorMod(now - start, CUE_PERIOD) / CUE_PERIOD;
+			// decelerating, as DecelerateInterpolator(2)
+			double eased = 1 - Math.pow(1 - t, 4);
+			double radius = CUE_RADIUS * (1 + (CUE_SCALE - 1) * eased);
+			gc.setGlobalAlpha(CUE_OPACITY * (1 - eased));
+			gc.setFill(Color.YELLOW);
+			gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+			gc.setGlobalAlpha(1);
+		}
+	}
+
+}
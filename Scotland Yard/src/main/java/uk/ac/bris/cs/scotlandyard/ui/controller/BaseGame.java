@@ -58,6 +58,7 @@ public abstract class BaseGame implements Controller {
 	@FXML private CheckMenuItem ticketToggle;
 	@FXML private CheckMenuItem statusToggle;
 	@FXML private CheckMenuItem scrollToggle;
+	@FXML private CheckMenuItem turboToggle;
 
 	@FXML private AnchorPane gamePane;
 	@FXML private StackPane mapPane;
@@ -160,6 +161,7 @@ public abstract class BaseGame implements Controller {
 		setAndBind(config.scrollPanProperty(), scrollToggle.selectedProperty());
 		setAndBind(config.historyProperty(), historyToggle.selectedProperty());
 		setAndBind(config.focusPlayerProperty(), focusToggle.selectedProperty());
+		setAndBind(config.turboProperty(), turboToggle.selectedProperty());
 
 		if (SystemUtils.IS_OS_WINDOWS) config.scrollPanProperty().setValue(false);
 
@@ -2,41 +2,32 @@ package uk.ac.bris.cs.scotlandyard.ui.controller;
 
 import static io.atlassian.fugue.Option.none;
 import static io.atlassian.fugue.Option.some;
-import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
-import javafx.animation.Animation;
-import javafx.animation.FadeTransition;
-import javafx.animation.ParallelTransition;
-import javafx.animation.ScaleTransition;
 import javafx.application.Platform;
 import javafx.beans.binding.When;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
 import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
-import javafx.scene.shape.Path;
-import javafx.scene.shape.PathElement;
 import javafx.util.Duration;
 import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
-import uk.ac.bris.cs.fxkit.interpolator.DecelerateInterpolator;
 import uk.ac.bris.cs.fxkit.pane.GesturePane;
 import uk.ac.bris.cs.fxkit.pane.GesturePane.ScrollMode;
+import uk.ac.bris.cs.fxkit.pane.TiledImagePane;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
@@ -58,10 +49,9 @@ import uk.ac.bris.cs.scotlandyard.ui.model.PlayerProperty;
 public final class Board implements Controller, GameControl, Player {
 
 	@FXML private Pane root;
-	@FXML private ImageView mapView;
-	@FXML private Pane historyPane;
+	@FXML private TiledImagePane mapView;
+	@FXML private Canvas annotationCanvas;
 	@FXML private Pane visualiserPane;
-	@FXML private Pane cuePane;
 	@FXML private Pane counterPane;
 	@FXML private Pane hintPane;
 
@@ -69,13 +59,15 @@ public final class Board implements Controller, GameControl, Player {
 	private final BoardProperty property;
 	private final GesturePane gesturePane;
 	private final ResourceManager manager;
+	private final AnnotationLayer annotations;
 
 	private final Map<Colour, Counter> counters = new HashMap<>();
 	private final Map<Colour, BoardPlayer> players = new HashMap<>();
 	private final Map<Integer, MoveHint> hints = new HashMap<>();
-	private final Map<Colour, Path> paths = new HashMap<>();
+	private final Deque<MoveHint> hintPool = new ArrayDeque<>();
 
 	private ModelConfiguration configuration;
+	private boolean turbo;
 
 	Board(ResourceManager manager, Notifications notifications, BoardProperty property) {
 		Controller.bind(this);
@@ -86,10 +78,12 @@ public final class Board implements Controller, GameControl, Player {
 		gesturePane = new GesturePane(root, GesturePane.ScrollMode.PAN);
 		gesturePane.scrollModeProperty().bind(new When(property.scrollPanProperty())
 				.then(ScrollMode.PAN).otherwise(ScrollMode.ZOOM));
-		historyPane.visibleProperty().bind(property.historyProperty());
+		annotations = new AnnotationLayer(annotationCanvas);
+		annotations.historyVisibleProperty().bind(property.historyProperty());
 		Image image = manager.getImage(ImageResource.MAP);
 		mapView.setImage(image);
-		lockSize(image.getWidth(), image.getHeight(), root, visualiserPane, historyPane);
+		lockSize(image.getWidth(), image.getHeight(), root, visualiserPane);
+		annotations.resize(image.getWidth(), image.getHeight());
 		Platform.runLater(gesturePane::cover);
 	}
 
@@ -102,6 +96,14 @@ public final class Board implements Controller, GameControl, Player {
 		this.players.put(colour, player);
 	}
 
+	/**
+	 * @param turbo whether the model of the next game is driven by AIs
+	 *        directly, so moves are placed instead of animated
+	 */
+	void setTurbo(boolean turbo) {
+		this.turbo = turbo;
+	}
+
 	@Override
 	public void onGameAttach(ScotlandYardView view, ModelConfiguration configuration) {
 		this.configuration = requireNonNull(configuration);
@@ -118,19 +120,7 @@ public final class Board implements Controller, GameControl, Player {
 			counterPane.getChildren().add(counter.root());
 
 			// setup initial path history
-			Path path = new Path();
-			path.setFill(Color.TRANSPARENT);
-			path.setStroke(Color.valueOf(property.colour().name()));
-			path.setStrokeWidth(30d);
-			path.setOpacity(0.5);
-			historyPane.getChildren().add(path);
-			paths.put(property.colour(), path);
-
-			int location = view.getPlayerLocation(property.colour());
-			if (location != 0) {
-				Point2D d = coordinateAtNode(location);
-				path.getElements().add(new MoveTo(d.getX(), d.getY()));
-			}
+			drawHistory(view.getPlayerLocation(property.colour()), property.colour());
 
 		}
 
@@ -142,8 +132,7 @@ public final class Board implements Controller, GameControl, Player {
 		clearActionCues();
 		counters.clear();
 		counterPane.getChildren().clear();
-		paths.clear();
-		historyPane.getChildren().clear();
+		annotations.clearHistory();
 		lock();
 	}
 
@@ -153,10 +142,15 @@ public final class Board implements Controller, GameControl, Player {
 
 	private void drawMoveHints(Set<Move> moves, Consumer<Move> moveCallback) {
 		clearMoveHints();
-		Function<Integer, MoveHint> mapping = location -> new MoveHint(manager,
-				this,
-				location,
-				moveCallback);
+		Function<Integer, MoveHint> mapping = location -> {
+			MoveHint hint = hintPool.poll();
+			if (hint == null) {
+				hint = new MoveHint(manager, this);
+				hintPane.getChildren().add(hint.root());
+			}
+			hint.show(location, moveCallback);
+			return hint;
+		};
 		// attach tickets to hint
 		for (Move move : moves) {
 			move.visit(new MoveVisitor() {
@@ -172,19 +166,37 @@ public final class Board implements Controller, GameControl, Player {
 				}
 			});
 		}
-		hints.values().stream().map(MoveHint::root)
-				.forEach(n -> hintPane.getChildren().add(n));
 	}
 
 	private void clearMoveHints() {
+		// hints stay in the pane hidden, ready to be shown again
 		hints.values().forEach(MoveHint::discard);
+		hintPool.addAll(hints.values());
 		hints.clear();
-		hintPane.getChildren().clear();
 	}
 
 	@Override
 	public void onMoveMade(ScotlandYardView view, Move move) {
 		Counter counter = counters.get(move.colour());
+		if (turbo) {
+			// no animation, moves may arrive faster than they could play
+			move.visit(new MoveVisitor() {
+				@Override
+				public void visit(TicketMove move) {
+					counter.location(move.destination());
+					drawHistory(move.destination(), move.colour());
+				}
+
+				@Override
+				public void visit(DoubleMove move) {
+					counter.location(move.finalDestination());
+					drawHistory(move.firstMove().destination(), move.colour());
+					drawHistory(move.secondMove().destination(), move.colour());
+				}
+			});
+			counter.updateLocation();
+			return;
+		}
 		// draw history and then animate the move
 		move.visit(new MoveVisitor() {
 			@Override
@@ -215,42 +227,17 @@ public final class Board implements Controller, GameControl, Player {
 		if (location == 0) {
 			return;
 		}
-		Point2D end = coordinateAtNode(location);
-		ObservableList<PathElement> elements = paths.get(colour).getElements();
-		if (elements.isEmpty()) {
-			elements.add(new MoveTo(end.getX(), end.getY()));
-		} else {
-			elements.add(new LineTo(end.getX(), end.getY()));
-		}
+		annotations.appendHistory(colour, Color.valueOf(colour.name()),
+				coordinateAtNode(location));
 	}
 
 	private void showActionCueAtNode(int node) {
 		// do a nice glow animation
-		Point2D point = coordinateAtNode(node);
-		Circle circle = new Circle();
-		circle.setRadius(10);
-		circle.setFill(Color.YELLOW);
-		cuePane.getChildren().add(circle);
-		circle.setTranslateX(point.getX() - circle.getRadius());
-		circle.setTranslateY(point.getY() - circle.getRadius());
-		circle.setOpacity(0.5);
-
-		Duration duration = Duration.millis(1000);
-		ScaleTransition st = new ScaleTransition(duration);
-		st.setToX(10);
-		st.setToY(10);
-		FadeTransition ft = new FadeTransition(duration);
-		ft.setToValue(0);
-
-		ParallelTransition pt = new ParallelTransition(st, ft);
-		pt.setInterpolator(new DecelerateInterpolator(2));
-		pt.setNode(circle);
-		pt.setCycleCount(Animation.INDEFINITE);
-		pt.play();
+		annotations.addCue(coordinateAtNode(node));
 	}
 
 	private void clearActionCues() {
-		cuePane.getChildren().clear();
+		annotations.clearCues();
 	}
 
 	Point2D coordinateAtNode(int node) {
@@ -278,11 +265,13 @@ public final class Board implements Controller, GameControl, Player {
 	}
 
 	void lock() {
-		asList(cuePane, hintPane).forEach(p -> p.setVisible(false));
+		annotations.setCuesVisible(false);
+		hintPane.setVisible(false);
 	}
 
 	private void unlock() {
-		asList(cuePane, hintPane).forEach(p -> p.setVisible(true));
+		annotations.setCuesVisible(true);
+		hintPane.setVisible(true);
 	}
 
 	@Override
@@ -0,0 +1,176 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import javafx.application.Platform;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.ui.GameControl;
+import uk.ac.bris.cs.scotlandyard.ui.ViewSnapshot;
+
+/**
+ * Relays model events from any thread to spectators on the JavaFX thread,
+ * coalescing them <br>
+ * Events are queued on the model thread without copying the view. Once the
+ * model is between moves, {@link #commit(ScotlandYardView)} takes one
+ * {@link ViewSnapshot} for all of them; rotation complete and game over commit
+ * by themselves. At most one {@link Platform#runLater(Runnable)} is pending at
+ * a time; it applies everything committed so far in one go. Within such a batch, an event
+ * that a later one of the same kind supersedes is dropped: only the last
+ * round started and rotation complete are delivered, and only the last move
+ * for {@link GameControl}s that {@link GameControl#coalesceMoves() coalesce
+ * moves}. <br>
+ * Events arriving after {@link #detach()} are dropped.
+ */
+final class CoalescingSpectator implements Spectator {
+
+	private enum Kind {
+		MOVE, ROUND, ROTATION, GAME_OVER
+	}
+
+	private static final class Event {
+
+		final Kind kind;
+		final Move move;
+		final int round;
+		final boolean revealRound;
+		final Set<Colour> winners;
+		// the snapshot of the batch, set when committed
+		ViewSnapshot view;
+
+		Event(Kind kind, ScotlandYardView view, Move move, int round, Set<Colour> winners) {
+			this.kind = kind;
+			this.move = move;
+			// moves of a batch may be made in different rounds
+			this.round = kind == Kind.ROUND ? round : view.getCurrentRound();
+			this.revealRound = view.isRevealRound();
+			this.winners = winners;
+		}
+
+		ViewSnapshot view() {
+			return view.atRound(round, revealRound);
+		}
+	}
+
+	private final List<Spectator> spectators;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final List<Event> uncommitted = new ArrayList<>();
+	private List<Event> pending = new ArrayList<>();
+	private volatile boolean detached;
+
+	CoalescingSpectator(List<? extends Spectator> spectators) {
+		this.spectators = ImmutableList.copyOf(requireNonNull(spectators));
+	}
+
+	/**
+	 * Stops relaying, including events already queued
+	 */
+	void detach() {
+		detached = true;
+	}
+
+	/**
+	 * Delivers the events queued since the last commit with one snapshot of
+	 * the view; must be called on the model thread while no move is being
+	 * played
+	 */
+	void commit(ScotlandYardView view) {
+		commit(view, ImmutableSet.of());
+	}
+
+	private void enqueue(Event event) {
+		if (detached) return;
+		synchronized (this) {
+			uncommitted.add(event);
+		}
+	}
+
+	private void commit(ScotlandYardView view, Set<Colour> winners) {
+		if (detached) return;
+		synchronized (this) {
+			if (uncommitted.isEmpty()) return;
+			ViewSnapshot snapshot = ViewSnapshot.of(view, winners);
+			for (Event event : uncommitted)
+				event.view = snapshot;
+			pending.addAll(uncommitted);
+			uncommitted.clear();
+		}
+		if (scheduled.compareAndSet(false, true)) Platform.runLater(this::flush);
+	}
+
+	private void flush() {
+		scheduled.set(false);
+		List<Event> events;
+		synchronized (this) {
+			events = pending;
+			pending = new ArrayList<>();
+		}
+		if (detached) return;
+		int[] last = new int[Kind.values().length];
+		for (int i = 0; i < events.size(); i++)
+			last[events.get(i).kind.ordinal()] = i;
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			boolean latest = last[event.kind.ordinal()] == i;
+			for (Spectator spectator : spectators) {
+				if (latest || event.kind == Kind.MOVE && !coalesceMoves(spectator))
+					deliver(spectator, event);
+			}
+		}
+	}
+
+	private static boolean coalesceMoves(Spectator spectator) {
+		return spectator instanceof GameControl && ((GameControl) spectator).coalesceMoves();
+	}
+
+	private static void deliver(Spectator spectator, Event event) {
+		switch (event.kind) {
+			case MOVE:
+				spectator.onMoveMade(event.view(), event.move);
+				break;
+			case ROUND:
+				spectator.onRoundStarted(event.view(), event.round);
+				break;
+			case ROTATION:
+				spectator.onRotationComplete(event.view());
+				break;
+			case GAME_OVER:
+				spectator.onGameOver(event.view(), event.winners);
+				break;
+		}
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		enqueue(new Event(Kind.MOVE, view, move, 0, null));
+	}
+
+	@Override
+	public void onRoundStarted(ScotlandYardView view, int round) {
+		enqueue(new Event(Kind.ROUND, view, null, round, null));
+	}
+
+	@Override
+	public void onRotationComplete(ScotlandYardView view) {
+		enqueue(new Event(Kind.ROTATION, view, null, 0, null));
+		commit(view);
+	}
+
+	@Override
+	public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		Set<Colour> winners = ImmutableSet.copyOf(winningPlayers);
+		enqueue(new Event(Kind.GAME_OVER, view, null, 0, winners));
+		commit(view, winners);
+	}
+
+}
@@ -30,6 +30,7 @@ import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
 import uk.ac.bris.cs.fxkit.pane.GesturePane;
 import uk.ac.bris.cs.fxkit.pane.GesturePane.ScrollMode;
+import uk.ac.bris.cs.scotlandyard.NodeCoordinates;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ui.MapPreviewPane;
 import uk.ac.bris.cs.scotlandyard.ui.model.BoardProperty;
@@ -39,6 +40,7 @@ public final class FindNode implements Controller {
 
 	private static final Joiner JOINER = Joiner.on(", ").skipNulls();
 	private static final Splitter SPLITTER = Splitter.on(' ').omitEmptyStrings().trimResults();
+	private static final double CLICK_RADIUS = 35;
 
 	@FXML private VBox root;
 	@FXML private TextField search;
@@ -76,6 +78,15 @@ public final class FindNode implements Controller {
 			}
 		});
 
+		// clicking next to a node adds it to the search
+		pane.setOnMouseClicked(e -> {
+			if (!e.isStillSincePress()) return;
+			int node = manager.getNodeCoordinates().nearest(e.getX(), e.getY(), CLICK_RADIUS);
+			if (node == NodeCoordinates.NONE) return;
+			String text = search.getText().trim();
+			search.setText(text.isEmpty() ? String.valueOf(node) : text + " " + node);
+		});
+
 		reset.setOnAction(e -> gesturePane.cover());
 	}
 
@@ -9,9 +9,16 @@ import static uk.ac.bris.cs.scotlandyard.ui.Utils.handleFatalException;
 
 import java.net.URL;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import javafx.application.Platform;
@@ -21,6 +28,8 @@ import javafx.stage.Stage;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics;
+import uk.ac.bris.cs.scotlandyard.model.Player;
 import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
@@ -77,15 +86,31 @@ public final class LocalGame extends BaseGame implements Spectator {
 		private final ModelProperty setup;
 		private final ScotlandYardModel model;
 		private final List<GameControl> controls;
+		private final List<Spectator> spectators;
+		private final CoalescingSpectator relay;
+		private final boolean turbo;
+		private final Map<Colour, Player> aiPlayers = new EnumMap<>(Colour.class);
 		private final AIPool<Side> pool = new AIPool<>(
 				createVisualiserSurface(),
 				Utils::handleFatalException);
+		// the board times out moves for the players it drives, in turbo mode
+		// the AI players are timed out here
+		private final ScheduledExecutorService timeouts = Executors
+				.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "Move timeout");
+					thread.setDaemon(true);
+					return thread;
+				});
 
 		Game(ModelProperty setup) throws Exception {
 			this.setup = setup;
 
 			List<PlayerProperty> joining = setup.players();
 
+			// with only AIs playing, the AIs drive the model directly instead
+			// of going through the board and the FX thread for every move
+			turbo = config.isTurbo() && joining.stream().allMatch(p -> p.ai().isPresent());
+
 			// Add players to AI pool
 			for (PlayerProperty property : joining) {
 				property.ai().ifPresent(ai -> pool.addToGroup(
@@ -98,7 +123,7 @@ public final class LocalGame extends BaseGame implements Spectator {
 					.map(p -> new PlayerConfiguration.Builder(p.colour())
 							.at(p.location())
 							.with(p.ticketsAsMap())
-							.using(board)
+							.using(committing(turbo ? aiPlayer(p.colour()) : board))
 							.build())
 					.collect(Collectors.toList());
 
@@ -117,6 +142,8 @@ public final class LocalGame extends BaseGame implements Spectator {
 					mrX,
 					detectives.get(0),
 					detectives.stream().skip(1).toArray(PlayerConfiguration[]::new));
+			if (Boolean.getBoolean(ModelMetrics.ENABLED_PROPERTY))
+				model.setMetrics(ModelMetrics.shared());
 
 			controls = asList(
 					board,
@@ -125,28 +152,68 @@ public final class LocalGame extends BaseGame implements Spectator {
 					status,
 					this);
 
-			pool.initialise(resourceManager, model);
+			pool.initialise(resourceManager, model, setup.timeoutProperty().get());
+			if (turbo) {
+				for (PlayerProperty property : joining)
+					aiPlayers.put(property.colour(), pool.createPlayer(property.colour())
+							.orElseThrow(AssertionError::new));
+			}
 			// Add all players to board
-			for (PlayerProperty property : joining) {
+			else for (PlayerProperty property : joining) {
 				board.setBoardPlayer(property.colour(),
 						BoardPlayers.resolve(
 								fromOptional(pool.createPlayer(property.colour())),
-								fromOptional(property.name()), () -> {
-									onGameOver(model, model.getCurrentPlayer().isDetective()
-											? ImmutableSet.of(Colour.Black)
-											: ImmutableSet.copyOf(stream(Colour.values())
-													.filter(Colour::isDetective)
-													.collect(toList())));
-								}));
+								fromOptional(property.name()), this::onTimeout));
 			}
 
-			controls.forEach(model::registerSpectator);
+			// the UI only follows the model, in turbo mode from AI threads
+			relay = new CoalescingSpectator(asList(board, travelLog, ticketsCounter, status));
+			spectators = asList(relay, this);
+
+			spectators.forEach(model::registerSpectator);
+			board.setTurbo(turbo);
 			controls.forEach(l -> l.onGameAttach(model, setup));
 			model.startRotate();
 		}
 
+		private Player committing(Player player) {
+			// the model is between moves whenever it asks a player for one
+			return (view, location, moves, callback) -> {
+				relay.commit(view);
+				player.makeMove(view, location, moves, callback);
+			};
+		}
+
+		private Player aiPlayer(Colour colour) {
+			// the pool can only create players once the model exists
+			return (view, location, moves, callback) -> {
+				// whichever comes first of the move and the timeout wins
+				AtomicBoolean answered = new AtomicBoolean();
+				ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+					if (answered.compareAndSet(false, true)) onTimeout();
+				}, setup.timeoutProperty().get().toNanos(), TimeUnit.NANOSECONDS);
+				aiPlayers.get(colour).makeMove(view, location, moves, move -> {
+					if (!answered.compareAndSet(false, true)) return;
+					timeout.cancel(false);
+					callback.accept(move);
+				});
+			};
+		}
+
+		private void onTimeout() {
+			// the player to move forfeits
+			onGameOver(model, model.getCurrentPlayer().isDetective()
+					? ImmutableSet.of(Colour.Black)
+					: ImmutableSet.copyOf(stream(Colour.values())
+							.filter(Colour::isDetective)
+							.collect(toList())));
+		}
+
 		void terminate() {
-			controls.forEach(model::unregisterSpectator);
+			relay.detach();
+			if (turbo) pool.cancel();
+			timeouts.shutdownNow();
+			spectators.forEach(model::unregisterSpectator);
 			controls.forEach(GameControl::onGameDetached);
 			pool.terminate();
 		}
@@ -32,7 +32,11 @@ import uk.ac.bris.cs.scotlandyard.model.TicketMove;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 
 /**
- * Controller for move hints with highlighting
+ * Controller for move hints with highlighting <br>
+ * Hints are recycled: the FXML is loaded once per instance and
+ * {@link #show(int, Consumer)} rebinds the node and moves, so
+ * {@link Board} can keep a pool instead of loading a hint per destination
+ * every turn.
  */
 @BindFXML("layout/MoveHint.fxml")
 final class MoveHint implements Controller {
@@ -49,13 +53,14 @@ final class MoveHint implements Controller {
 
 	@FXML private Pane root;
 	@FXML private Circle piece;
-	private boolean discarded = false;
+	private Consumer<Move> moveConsumer;
+	private boolean discarded = true;
 
-	MoveHint(ResourceManager manager, Board board, int target, Consumer<Move> moveConsumer) {
+	MoveHint(ResourceManager manager, Board board) {
 		Controller.bind(this);
 		this.manager = manager;
 		this.board = board;
-		this.node.set(target);
+		root.setVisible(false);
 
 		EasyBind.subscribe(highlight, v -> {
 			ObservableList<String> styles = piece.getStyleClass();
@@ -63,7 +68,7 @@ final class MoveHint implements Controller {
 			function.apply(HIGHLIGHTED);
 		});
 
-		if (moveConsumer != null) setupMoveOptions(moveConsumer);
+		setupMoveOptions();
 
 		piece.setOnMouseEntered(e -> {
 			Utils.scaleTo(piece, 1.25);
@@ -73,15 +78,36 @@ final class MoveHint implements Controller {
 			Utils.scaleTo(piece, 1);
 		});
 
-		// Platform.runLater(() -> {
-		Point2D location = board.coordinateAtNode(node.get());
-		piece.setTranslateX(location.getX());
-		piece.setTranslateY(location.getY());
-		// });
+		EasyBind.subscribe(node, target -> {
+			Point2D location = board.coordinateAtNode(target.intValue());
+			if (location == null) return;
+			piece.setTranslateX(location.getX());
+			piece.setTranslateY(location.getY());
+		});
+	}
+
+	/**
+	 * Shows this hint at the given node, forgetting all previous moves
+	 *
+	 * @param target the node
+	 * @param moveConsumer receives the chosen move; null for a hint that
+	 *        cannot be picked
+	 */
+	void show(int target, Consumer<Move> moveConsumer) {
+		this.moves.clear();
+		this.moveConsumer = moveConsumer;
+		this.discarded = false;
+		highlight.set(false);
+		piece.setScaleX(1);
+		piece.setScaleY(1);
+		node.set(target);
+		root.setVisible(true);
 	}
 
-	private void setupMoveOptions(Consumer<Move> moveConsumer) {
+	private void setupMoveOptions() {
 		piece.setOnMouseClicked(e -> {
+			if (discarded || moveConsumer == null) return;
+			Consumer<Move> moveConsumer = this.moveConsumer;
 			final ContextMenu contextMenu = new ContextMenu();
 
 			for (Move move : moves) {
@@ -127,9 +153,15 @@ final class MoveHint implements Controller {
 		return highlight;
 	}
 
-	// @Override
+	/**
+	 * Hides this hint so that it can be shown again later
+	 */
 	public void discard() {
 		this.discarded = true;
+		this.moveConsumer = null;
+		this.moves.clear();
+		highlight.set(false);
+		root.setVisible(false);
 	}
 
 	void addMove(Move move) {
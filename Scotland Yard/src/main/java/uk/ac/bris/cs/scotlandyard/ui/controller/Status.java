@@ -61,6 +61,11 @@ public final class Status implements Controller, GameControl {
 		status.setText("Game completed, winning player:" + view.getWinningPlayers());
 	}
 
+	@Override
+	public boolean coalesceMoves() {
+		return true;
+	}
+
 	@Override
 	public Parent root() {
 		return root;
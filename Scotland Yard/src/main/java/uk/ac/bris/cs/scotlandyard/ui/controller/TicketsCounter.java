@@ -74,6 +74,11 @@ public final class TicketsCounter implements Controller, GameControl {
 		controllers.values().forEach(c -> c.update(view));
 	}
 
+	@Override
+	public boolean coalesceMoves() {
+		return true;
+	}
+
 	@Override
 	public Parent root() {
 		return root;
@@ -8,6 +8,7 @@ public class BoardProperty {
 	private final BooleanProperty scrollPan = new SimpleBooleanProperty(true);
 	private final BooleanProperty focusPlayer = new SimpleBooleanProperty(false);
 	private final BooleanProperty history = new SimpleBooleanProperty(false);
+	private final BooleanProperty turbo = new SimpleBooleanProperty(false);
 
 	public boolean isScrollPan() {
 		return scrollPan.get();
@@ -33,4 +34,16 @@ public class BoardProperty {
 		return history;
 	}
 
+	/**
+	 * @return whether games where every player is an AI run as fast as the
+	 *         AIs decide, without move animations
+	 */
+	public boolean isTurbo() {
+		return turbo.get();
+	}
+
+	public BooleanProperty turboProperty() {
+		return turbo;
+	}
+
 }
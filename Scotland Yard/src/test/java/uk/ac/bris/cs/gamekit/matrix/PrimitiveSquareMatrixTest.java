@@ -0,0 +1,132 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+/**
+ * Tests the primitive square matrices against each other and against
+ * {@link SquareMatrix}
+ */
+public class PrimitiveSquareMatrixTest {
+
+	@Test
+	public void testGetAndPut() {
+		for (boolean direct : new boolean[] { false, true }) {
+			IntSquareMatrix matrix = new IntSquareMatrix(3, direct);
+			assertThat(matrix.getInt(2, 2)).isZero();
+			matrix.putInt(1, 2, 7);
+			matrix.putInt(2 * 3 + 1, 9);
+			assertThat(matrix.getInt(1, 2)).isEqualTo(7);
+			assertThat(matrix.getInt(1 * 3 + 2)).isEqualTo(7);
+			assertThat(matrix.get(2, 1)).isEqualTo(9);
+			assertThat(matrix.row(1)).containsExactly(0, 0, 7);
+			assertThat(matrix.column(1)).containsExactly(0, 0, 9);
+		}
+	}
+
+	@Test
+	public void testOutOfBoundsThrows() {
+		IntSquareMatrix matrix = new IntSquareMatrix(3);
+		assertThatThrownBy(() -> matrix.getInt(3, 0))
+				.isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> matrix.putInt(0, -1, 1))
+				.isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> matrix.copyRow(0, new int[4], 2))
+				.isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(
+				() -> new ShortSquareMatrix(2).copyRowFrom(new ShortSquareMatrix(3), 0, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new BitMatrix(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testRowCopies() {
+		ShortSquareMatrix matrix = new ShortSquareMatrix(3);
+		matrix.setRow(2, new short[] { 9, 1, 2, 3 }, 1);
+		short[] row = new short[3];
+		matrix.copyRow(2, row, 0);
+		assertThat(row).containsExactly(new short[] { 1, 2, 3 });
+		ShortSquareMatrix copy = new ShortSquareMatrix(3, true);
+		copy.copyRowFrom(matrix, 2, 0);
+		assertThat(copy.row(0)).containsExactly((short) 1, (short) 2, (short) 3);
+		assertThat(copy.row(2)).containsOnly((short) 0);
+	}
+
+	@Test
+	public void testTranspose() {
+		IntSquareMatrix ints = new IntSquareMatrix(4);
+		ints.parallelFill((row, column) -> row * 10 + column);
+		ints.transpose();
+		assertThat(ints.getInt(1, 3)).isEqualTo(31);
+		assertThat(ints.getInt(3, 1)).isEqualTo(13);
+		assertThat(ints.mainDiagonal()).containsExactly(0, 11, 22, 33);
+
+		BitMatrix bits = new BitMatrix(70);
+		bits.putBit(1, 65, true);
+		bits.putBit(69, 0, true);
+		bits.transpose();
+		assertThat(bits.getBit(65, 1)).isTrue();
+		assertThat(bits.getBit(1, 65)).isFalse();
+		assertThat(bits.getBit(0, 69)).isTrue();
+		assertThat(bits.cardinality(0) + bits.cardinality(65)).isEqualTo(2);
+
+		FloatSquareMatrix floats = new FloatSquareMatrix(2);
+		floats.putFloat(0, 1, 0.5f);
+		floats.transpose();
+		floats.transpose();
+		assertThat(floats.getFloat(0, 1)).isEqualTo(0.5f);
+		assertThat(floats.getFloat(1, 0)).isZero();
+	}
+
+	@Test
+	public void testEqualsAndHashCodeAgreeWithBoxedMatrices() {
+		IntSquareMatrix ints = new IntSquareMatrix(3);
+		SquareMatrix<Integer> boxed = new SquareMatrix<>(3, 0);
+		ints.putInt(0, 2, -4);
+		boxed.put(0, 2, -4);
+		assertThat(ints).isEqualTo(boxed).isEqualTo(new IntSquareMatrix(ints));
+		assertThat(ints.hashCode()).isEqualTo(boxed.hashCode())
+				.isEqualTo(new IntSquareMatrix(ints).hashCode());
+		assertThat(ints).isNotEqualTo(new IntSquareMatrix(3))
+				.isNotEqualTo(new IntSquareMatrix(4));
+
+		BitMatrix bits = new BitMatrix(3, true);
+		SquareMatrix<Boolean> booleans = new SquareMatrix<>(3, false);
+		bits.putBit(2, 1, true);
+		booleans.put(2, 1, true);
+		assertThat(bits).isEqualTo(booleans).isEqualTo(new BitMatrix(bits));
+		assertThat(bits.hashCode()).isEqualTo(booleans.hashCode());
+
+		ShortSquareMatrix shorts = new ShortSquareMatrix(2);
+		shorts.fill((short) -1);
+		SquareMatrix<Short> boxedShorts = new SquareMatrix<>(2, (short) -1);
+		assertThat(shorts).isEqualTo(boxedShorts);
+		assertThat(shorts.hashCode()).isEqualTo(boxedShorts.hashCode());
+	}
+
+	@Test
+	public void testFloatEqualityIsConsistentWithHashCode() {
+		FloatSquareMatrix zero = new FloatSquareMatrix(2);
+		FloatSquareMatrix negativeZero = new FloatSquareMatrix(2);
+		negativeZero.putFloat(1, 1, -0f);
+		// as Float.equals: -0f and 0f differ
+		assertThat(zero).isNotEqualTo(negativeZero);
+		assertThat(negativeZero).isEqualTo(new FloatSquareMatrix(negativeZero));
+		assertThat(negativeZero.hashCode())
+				.isEqualTo(new FloatSquareMatrix(negativeZero).hashCode());
+
+		FloatSquareMatrix nan = new FloatSquareMatrix(2, true);
+		nan.fill(Float.NaN);
+		FloatSquareMatrix otherNan = new FloatSquareMatrix(2);
+		otherNan.fill(Float.NaN);
+		assertThat(nan).isEqualTo(otherNan);
+		assertThat(nan.hashCode()).isEqualTo(otherNan.hashCode());
+
+		SquareMatrix<Float> boxed = new SquareMatrix<>(2, Float.NaN);
+		assertThat(nan).isEqualTo(boxed);
+		assertThat(nan.hashCode()).isEqualTo(boxed.hashCode());
+	}
+
+}
@@ -0,0 +1,89 @@
+package uk.ac.bris.cs.scotlandyard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+import javafx.geometry.Point2D;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+/**
+ * Tests {@link NodeCoordinates} against a linear scan
+ */
+public class NodeCoordinatesTest {
+
+	@Test
+	public void testStandardMapLookup() throws Exception {
+		Map<Integer, Entry<Integer, Integer>> entries = StandardGame.pngMapPositionEntries();
+		NodeCoordinates coordinates = NodeCoordinates.of(entries);
+		assertThat(coordinates.size()).isEqualTo(entries.size());
+		entries.forEach((node, point) -> {
+			assertThat(coordinates.x(node)).isEqualTo(point.getKey().doubleValue());
+			assertThat(coordinates.y(node)).isEqualTo(point.getValue().doubleValue());
+			assertThat(coordinates.nearest(point.getKey(), point.getValue())).isEqualTo(node);
+			assertThat(coordinates.point(node))
+					.isEqualTo(new Point2D(point.getKey(), point.getValue()))
+					.isSameAs(coordinates.point(node));
+		});
+		assertThat(coordinates.contains(0)).isFalse();
+		assertThatThrownBy(() -> coordinates.x(0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> coordinates.point(0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testQueriesMatchLinearScan() {
+		Random random = new Random(42);
+		Map<Integer, Entry<Integer, Integer>> entries = new HashMap<>();
+		for (int node = 1; node <= 500; node++)
+			// small range so that there are plenty of equal coordinates
+			entries.put(node, new SimpleImmutableEntry<>(random.nextInt(200), random.nextInt(100)));
+		NodeCoordinates coordinates = NodeCoordinates.of(entries);
+
+		for (int i = 0; i < 200; i++) {
+			double x = random.nextDouble() * 240 - 20;
+			double y = random.nextDouble() * 140 - 20;
+			double radius = random.nextDouble() * 30;
+
+			int nearest = coordinates.nearest(x, y);
+			double best = entries.values().stream()
+					.mapToDouble(p -> distance(p, x, y)).min().getAsDouble();
+			assertThat(distance(entries.get(nearest), x, y)).isEqualTo(best);
+
+			int[] within = entries.entrySet().stream()
+					.filter(e -> distance(e.getValue(), x, y) <= radius)
+					.mapToInt(Entry::getKey).sorted().toArray();
+			assertThat(coordinates.within(x, y, radius)).containsExactly(within);
+			int bounded = coordinates.nearest(x, y, radius);
+			if (within.length == 0) assertThat(bounded).isEqualTo(NodeCoordinates.NONE);
+			else assertThat(distance(entries.get(bounded), x, y)).isEqualTo(best);
+
+			int[] inside = entries.entrySet().stream()
+					.filter(e -> Math.abs(e.getValue().getKey() - x) <= radius
+							&& Math.abs(e.getValue().getValue() - y) <= radius / 2)
+					.mapToInt(Entry::getKey).sorted().toArray();
+			assertThat(coordinates.inside(x - radius, y - radius / 2, x + radius, y + radius / 2))
+					.containsExactly(inside);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		NodeCoordinates coordinates = NodeCoordinates.of(new HashMap<>());
+		assertThat(coordinates.nearest(0, 0)).isEqualTo(NodeCoordinates.NONE);
+		assertThat(coordinates.within(0, 0, 100)).isEmpty();
+		assertThat(coordinates.inside(0, 0, 100, 100)).isEmpty();
+	}
+
+	private static double distance(Entry<Integer, Integer> point, double x, double y) {
+		return Math.hypot(point.getKey() - x, point.getValue() - y);
+	}
+
+}
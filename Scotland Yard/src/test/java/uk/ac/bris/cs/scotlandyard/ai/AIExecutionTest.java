@@ -0,0 +1,66 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link AIExecution} strategies
+ */
+public class AIExecutionTest {
+
+	@Test
+	public void testCallerRunsOnCallingThread() {
+		AtomicReference<Thread> ran = new AtomicReference<>();
+		ExecutorService executor = AIExecution.callerRuns().create("test");
+		executor.execute(() -> ran.set(Thread.currentThread()));
+		assertThat(ran.get()).isSameAs(Thread.currentThread());
+		assertThat(AIExecution.callerRuns().enforcesDeadlines()).isFalse();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testFixedRunsOnNamedDaemonThreads() throws Exception {
+		AtomicReference<Thread> ran = new AtomicReference<>();
+		ExecutorService executor = AIExecution.fixed(1).create("test");
+		executor.submit(() -> ran.set(Thread.currentThread())).get(10, TimeUnit.SECONDS);
+		assertThat(ran.get().isDaemon()).isTrue();
+		assertThat(ran.get().getName()).startsWith("test");
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWorkStealingRunsOnNamedDaemonThreads() throws Exception {
+		AtomicReference<Thread> ran = new AtomicReference<>();
+		ExecutorService executor = AIExecution.workStealing(1).create("test");
+		executor.submit(() -> ran.set(Thread.currentThread())).get(10, TimeUnit.SECONDS);
+		assertThat(ran.get().isDaemon()).isTrue();
+		assertThat(ran.get().getName()).isEqualTo("test #1");
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testVirtualThreadsOnlyWhereSupported() {
+		if (AIExecution.virtualThreadsSupported()) {
+			ExecutorService executor = AIExecution.virtualThreads().create("test");
+			executor.shutdownNow();
+		} else {
+			assertThatThrownBy(AIExecution::virtualThreads)
+					.isInstanceOf(UnsupportedOperationException.class);
+		}
+	}
+
+	@Test
+	public void testInvalidParallelismThrows() {
+		assertThatThrownBy(() -> AIExecution.fixed(0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> AIExecution.workStealing(0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,119 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javafx.scene.layout.Pane;
+import uk.ac.bris.cs.scotlandyard.ResourceManager;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PassMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+
+/**
+ * Tests how {@link AIPool} passes moves of players answering from other
+ * threads
+ */
+public class AIPoolTest {
+
+	private static final Move MOVE = new PassMove(Colour.Black);
+
+	// the latch the asynchronous players wait for before answering
+	private static volatile CountDownLatch answer;
+
+	private AIPool<String> pool;
+
+	@After
+	public void tearDown() {
+		if (pool != null) pool.terminate();
+	}
+
+	@Test
+	public void testAsynchronousAnswerIsMade() throws Exception {
+		answer = new CountDownLatch(0);
+		CompletableFuture<Move> made = new CompletableFuture<>();
+		start(Duration.ofSeconds(10)).makeMove(mock(ScotlandYardView.class), 1,
+				Collections.singleton(MOVE), made::complete);
+		assertThat(made.get(10, TimeUnit.SECONDS)).isEqualTo(MOVE);
+	}
+
+	@Test
+	public void testAsynchronousAnswerAfterTimeoutIsDropped() throws Exception {
+		answer = new CountDownLatch(1);
+		CompletableFuture<Move> made = new CompletableFuture<>();
+		start(Duration.ofMillis(100)).makeMove(mock(ScotlandYardView.class), 1,
+				Collections.singleton(MOVE), made::complete);
+		Thread.sleep(300);
+		answer.countDown();
+		Thread.sleep(100);
+		assertThat(made).isNotDone();
+	}
+
+	@Test
+	public void testAsynchronousAnswerAfterCancelIsDropped() throws Exception {
+		answer = new CountDownLatch(1);
+		CompletableFuture<Move> made = new CompletableFuture<>();
+		start(Duration.ofSeconds(10)).makeMove(mock(ScotlandYardView.class), 1,
+				Collections.singleton(MOVE), made::complete);
+		Thread.sleep(100);
+		pool.cancel();
+		answer.countDown();
+		Thread.sleep(100);
+		assertThat(made).isNotDone();
+	}
+
+	private Player start(Duration timeout) {
+		pool = new AIPool<>(new AIPool.VisualiserSurface() {
+			@Override
+			public Pane onCreate(AI ai) {
+				return new Pane();
+			}
+
+			@Override
+			public void onDestroy() {}
+		}, Throwable::printStackTrace, AIExecution.fixed(1));
+		pool.addToGroup("test", Colour.Black,
+				AI.fromName("Asynchronous", VisualiserType.NONE, AsynchronousFactory.class));
+		pool.initialise(new ResourceManager(), mock(ScotlandYardGame.class), timeout);
+		return pool.createPlayer(Colour.Black).orElseThrow(AssertionError::new);
+	}
+
+	/**
+	 * Creates players that return at once and answer from a new thread
+	 */
+	public static class AsynchronousFactory implements PlayerFactory {
+
+		@Override
+		public Player createPlayer(Colour colour) {
+			return new Player() {
+				@Override
+				public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+						Consumer<Move> callback) {
+					new Thread(() -> {
+						try {
+							answer.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						callback.accept(moves.iterator().next());
+					}).start();
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Bus;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+
+/**
+ * Tests the {@link AnytimeMove} contract
+ */
+public class AnytimeMoveTest {
+
+	private final TicketMove first = new TicketMove(Blue, Taxi, 1);
+	private final TicketMove second = new TicketMove(Blue, Bus, 2);
+	private final Set<Move> moves = ImmutableSet.of(first, second);
+	private final List<Move> made = new ArrayList<>();
+
+	@Test
+	public void testLatestProposalIsMadeOnce() {
+		AnytimeMove move = new AnytimeMove(moves, System.nanoTime(), made::add);
+		move.propose(first);
+		move.propose(second);
+		assertThat(move.commitLatest()).isTrue();
+		assertThat(move.isCancelled()).isTrue();
+		move.propose(first);
+		assertThat(move.commitLatest()).isFalse();
+		assertThat(made).containsExactly(second);
+	}
+
+	@Test
+	public void testNothingIsMadeWithoutProposal() {
+		AnytimeMove move = new AnytimeMove(moves, made::add);
+		assertThat(move.commitLatest()).isFalse();
+		assertThat(move.hasDeadline()).isFalse();
+		assertThat(made).isEmpty();
+	}
+
+	@Test
+	public void testCancelledMoveIsNeverMade() {
+		AnytimeMove move = new AnytimeMove(moves, made::add);
+		move.propose(first);
+		move.cancel();
+		move.commit(second);
+		assertThat(made).isEmpty();
+	}
+
+	@Test
+	public void testInvalidProposalThrows() {
+		AnytimeMove move = new AnytimeMove(moves, made::add);
+		assertThatThrownBy(() -> move.propose(new TicketMove(Blue, Taxi, 3)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testPlayerWithoutDeadlineMakesLatestProposal() {
+		AnytimePlayer player = (view, location, moves, move) -> {
+			move.propose(second);
+			move.propose(first);
+		};
+		player.makeMove(null, 0, moves, made::add);
+		assertThat(made).containsExactly(first);
+	}
+
+	@Test
+	public void testBudgetLeavesMargin() {
+		assertThat(AnytimeMove.budget(Duration.ofSeconds(10))).isEqualTo(Duration.ofSeconds(9));
+		assertThat(AnytimeMove.budget(Duration.ofSeconds(1))).isEqualTo(Duration.ofMillis(750));
+		assertThat(AnytimeMove.budget(Duration.ofMillis(100))).isEqualTo(Duration.ZERO);
+	}
+
+}
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ManagedAIProcessor} and loading AIs in {@link AI}
+ */
+public class ManagedAIProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testIndexListsManagedAIs() throws Exception {
+		Path source = write("Good.java", "package p;\n"
+				+ "@uk.ac.bris.cs.scotlandyard.ai.ManagedAI(\"Good\")\n"
+				+ "public class Good extends uk.ac.bris.cs.scotlandyard.ai.RandomAI {}\n");
+		Path output = folder.newFolder("out").toPath();
+		assertThat(compile(source, output)).isEqualTo(0);
+		assertThat(Files.readAllLines(output.resolve(AI.INDEX), StandardCharsets.UTF_8))
+				.containsExactly("p.Good");
+	}
+
+	@Test
+	public void testProcessorIsFoundAsAService() throws Exception {
+		Path source = write("Good.java", "package p;\n"
+				+ "@uk.ac.bris.cs.scotlandyard.ai.ManagedAI(\"Good\")\n"
+				+ "public class Good extends uk.ac.bris.cs.scotlandyard.ai.RandomAI {}\n");
+		Path output = folder.newFolder("out").toPath();
+		assertThat(compile(source, output, "-proc:only")).isEqualTo(0);
+		assertThat(output.resolve(AI.INDEX)).exists();
+	}
+
+	@Test
+	public void testNonPlayerFactoryIsAnError() throws Exception {
+		Path source = write("Bad.java", "package p;\n"
+				+ "@uk.ac.bris.cs.scotlandyard.ai.ManagedAI(\"Bad\")\n"
+				+ "public class Bad {}\n");
+		Path output = folder.newFolder("out").toPath();
+		assertThat(compile(source, output)).isNotEqualTo(0);
+	}
+
+	@Test
+	public void testClasspathContainsBundledAIs() {
+		List<String> names = AI.scanClasspath().stream().map(AI::getName).collect(toList());
+		assertThat(names).contains("MCTS Mr X", "ISMCTS Detectives", "Alpha-Beta Detectives");
+	}
+
+	@Test
+	public void testStaleIndexEntriesAreSkipped() throws Exception {
+		Path root = folder.newFolder("stale").toPath();
+		Path index = root.resolve(AI.INDEX);
+		Files.createDirectories(index.getParent());
+		// gone, no longer annotated and still valid
+		Files.write(index, Arrays.asList("p.Gone", AnytimeMove.class.getName(),
+				RandomAI.class.getName()), StandardCharsets.UTF_8);
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { root.toUri().toURL() },
+				getClass().getClassLoader())) {
+			List<String> names = AI.scanClasspath(loader).stream().map(AI::getName)
+					.collect(toList());
+			assertThat(names).contains("Random");
+		}
+	}
+
+	private Path write(String name, String content) throws IOException {
+		Path path = folder.getRoot().toPath().resolve(name);
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	private static int compile(Path source, Path output) {
+		return compile(source, output, "-proc:only", "-processor",
+				ManagedAIProcessor.class.getName());
+	}
+
+	private static int compile(Path source, Path output, String... options) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<String> arguments = new ArrayList<>(Arrays.asList(options));
+		arguments.addAll(Arrays.asList("-classpath", System.getProperty("java.class.path"),
+				"-d", output.toString(), source.toString()));
+		return compiler.run(null, null, new ByteArrayOutputStream(),
+				arguments.toArray(new String[0]));
+	}
+
+}
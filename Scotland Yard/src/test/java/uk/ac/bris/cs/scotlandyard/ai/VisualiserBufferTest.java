@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Tests when {@link VisualiserBuffer} flushes committed frames to its surface,
+ * with the FX thread replaced by a queue that is run by hand
+ */
+public class VisualiserBufferTest {
+
+	private final Queue<Runnable> fxThread = new ArrayDeque<>();
+	private final Pane pane = new Pane();
+	private VisualiserBuffer buffer;
+
+	@Before
+	public void setUp() {
+		ResourceProvider provider = mock(ResourceProvider.class);
+		when(provider.coordinateAtNode(1)).thenReturn(new Point2D(100, 200));
+		when(provider.coordinateAtNode(2)).thenReturn(new Point2D(300, 50));
+		buffer = new VisualiserBuffer(pane, provider, fxThread::add);
+	}
+
+	@Test
+	public void testNothingIsShownBeforeCommit() {
+		buffer.circle(1, 10, Color.RED).line(0, 0, 50, 50, Color.BLUE, 2);
+		assertThat(fxThread).isEmpty();
+		assertThat(pane.getChildren()).isEmpty();
+	}
+
+	@Test
+	public void testCommitsAreFlushedOnce() {
+		buffer.circle(1, 10, Color.RED).commit();
+		buffer.path(Color.BLUE, 4, 1, 2).commit();
+		// the second commit replaces the first before it is shown
+		assertThat(fxThread).hasSize(1);
+		runFxThread();
+		assertThat(pane.getChildren()).hasSize(1).first().isInstanceOf(Canvas.class);
+		Canvas canvas = (Canvas) pane.getChildren().get(0);
+		// sized to the path of the last frame
+		assertThat(canvas.getWidth()).isEqualTo(304);
+		assertThat(canvas.getHeight()).isEqualTo(204);
+
+		buffer.commit();
+		assertThat(fxThread).hasSize(1);
+		runFxThread();
+		// the same canvas is reused for every frame
+		assertThat(pane.getChildren()).containsExactly(canvas);
+	}
+
+	@Test
+	public void testCommandsOnNodesWithoutCoordinatesAreSkipped() {
+		buffer.circle(3, 10, Color.RED).label(3, "3", Color.RED).path(Color.RED, 1, 1, 3)
+				.commit();
+		runFxThread();
+		Canvas canvas = (Canvas) pane.getChildren().get(0);
+		assertThat(canvas.getWidth()).isZero();
+		assertThat(canvas.getHeight()).isZero();
+	}
+
+	@Test
+	public void testDetachRemovesTheCanvas() {
+		buffer.circle(1, 10, Color.RED).commit();
+		runFxThread();
+		buffer.detach();
+		runFxThread();
+		assertThat(pane.getChildren()).isEmpty();
+		buffer.commit();
+		assertThat(fxThread).isEmpty();
+	}
+
+	@Test
+	public void testDetachBeforeCommitSchedulesNothing() {
+		buffer.circle(1, 10, Color.RED);
+		buffer.detach();
+		buffer.commit();
+		assertThat(fxThread).isEmpty();
+	}
+
+	@Test
+	public void testDefaultBufferDiscardsEverything() {
+		Visualiser visualiser = () -> pane;
+		VisualiserBuffer discarding = visualiser.buffer();
+		assertThat(discarding).isSameAs(VisualiserBuffer.discarding());
+		discarding.circle(1, 10, Color.RED).line(0, 0, 50, 50, Color.BLUE, 2).commit();
+		discarding.clear();
+		assertThat(fxThread).isEmpty();
+		assertThat(pane.getChildren()).isEmpty();
+	}
+
+	private void runFxThread() {
+		Runnable task;
+		while ((task = fxThread.poll()) != null)
+			task.run();
+	}
+
+}
@@ -0,0 +1,186 @@
+package uk.ac.bris.cs.scotlandyard.ai.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.MapContext;
+import uk.ac.bris.cs.scotlandyard.model.MapContextRegistry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Checks {@link SearchState} and {@link MrXBelief} against
+ * {@link ScotlandYardModel} and smoke tests {@link MonteCarloTree} and
+ * {@link ParanoidSearch}
+ */
+public class SearchStateTest {
+
+	private static final Colour[] DETECTIVES = { Colour.Blue, Colour.Green, Colour.Red,
+			Colour.White, Colour.Yellow };
+
+	private SearchState state;
+
+	@Test
+	public void testRandomGamesMatchModel() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		MapContext context = new MapContextRegistry(null).contextOf(graph);
+		for (int seed = 0; seed < 40; seed++) {
+			Random random = new Random(seed);
+			int[] buffer = new int[4096];
+			Player player = (view, location, moves, callback) -> {
+				int count = state.generateMoves(buffer, true);
+				Set<Move> generated = new HashSet<>();
+				for (int i = 0; i < count; i++)
+					generated.add(state.toMove(buffer[i]));
+				assertThat(generated).hasSize(count).isEqualTo(moves);
+				Move move = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+				state.apply(state.encode(move));
+				callback.accept(move);
+			};
+			ScotlandYardModel model = createGame(graph, seed, player);
+			state = SearchState.fromView(model, context, StandardGame.generateMrXLocation(seed));
+			while (!model.isGameOver()) {
+				assertThat(state.isOver()).isFalse();
+				model.startRotate();
+			}
+			assertThat(state.isOver()).isTrue();
+			assertThat(model.getWinningPlayers().contains(Colour.Black))
+					.isEqualTo(state.winner() == SearchState.MRX);
+		}
+	}
+
+	@Test
+	public void testBeliefAlwaysContainsMrX() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		MapContext context = new MapContextRegistry(null).contextOf(graph);
+		for (int seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			int[] mrX = { StandardGame.generateMrXLocation(seed) };
+			Player player = (view, location, moves, callback) -> {
+				Move move = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+				if (move instanceof DoubleMove) mrX[0] = ((DoubleMove) move).finalDestination();
+				else if (move.colour().isMrX()) mrX[0] = ((TicketMove) move).destination();
+				callback.accept(move);
+			};
+			ScotlandYardModel model = createGame(graph, seed, player);
+			MrXBelief belief = new MrXBelief(model, context);
+			model.registerSpectator(belief);
+			while (!model.isGameOver()) {
+				model.startRotate();
+				if (!model.isGameOver())
+					assertThat(belief.candidates()).contains(context.indexOf(mrX[0]));
+			}
+		}
+	}
+
+	@Test
+	public void testTreeSearchVisitsEveryRootMove() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		MapContext context = new MapContextRegistry(null).contextOf(graph);
+		ScotlandYardModel model = createGame(graph, 1, (view, location, moves, callback) -> {});
+		SearchState root = SearchState.fromView(model, context, StandardGame.generateMrXLocation(1));
+		MonteCarloTree tree = new MonteCarloTree(root,
+				new DistanceRolloutPolicy(context, 0.25), 42, 1 << 16);
+		for (int i = 0; i < 2000; i++)
+			tree.iterate();
+		assertThat(tree.iterations()).isEqualTo(2000);
+		int total = 0;
+		for (int i = 0; i < tree.childCount(0); i++) {
+			assertThat(tree.visits(tree.child(0, i))).isPositive();
+			total += tree.visits(tree.child(0, i));
+		}
+		assertThat(total).isEqualTo(2000);
+		assertThat(tree.size()).isLessThanOrEqualTo(1 << 16);
+	}
+
+	@Test
+	public void testCopiesAreIndependent() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		MapContext context = new MapContextRegistry(null).contextOf(graph);
+		ScotlandYardModel model = createGame(graph, 2, (view, location, moves, callback) -> {});
+		SearchState original = SearchState.fromView(model, context,
+				StandardGame.generateMrXLocation(2));
+		SearchState copy = new SearchState(original);
+		int[] moves = new int[copy.moveBufferSize()];
+		int count = copy.generateMoves(moves, false);
+		copy.apply(moves[new SplittableRandom(2).nextInt(count)]);
+		assertThat(copy.current()).isEqualTo(1);
+		assertThat(original.current()).isEqualTo(0);
+		copy.copyFrom(original);
+		assertThat(copy.toString()).isEqualTo(original.toString());
+	}
+
+	@Test
+	public void testParanoidSearchIsDeterministicAndLegal() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		MapContext context = new MapContextRegistry(null).contextOf(graph);
+		ScotlandYardModel model = createGame(graph, 3, (view, location, moves, callback) -> {});
+		SearchState state = SearchState.fromView(model, context,
+				StandardGame.generateMrXLocation(3));
+		int[] buffer = new int[state.moveBufferSize()];
+		state.generateMoves(buffer, false);
+		state.apply(buffer[0]);
+		int[] locations = new int[DETECTIVES.length];
+		int[][] tickets = new int[DETECTIVES.length][];
+		for (int i = 0; i < DETECTIVES.length; i++) {
+			locations[i] = state.location(i + 1);
+			tickets[i] = new int[Ticket.values().length];
+			for (Ticket ticket : Ticket.values())
+				tickets[i][ticket.ordinal()] = state.tickets(i + 1, ticket);
+		}
+		int[] mrXTickets = new int[Ticket.values().length];
+		for (Ticket ticket : Ticket.values())
+			mrXTickets[ticket.ordinal()] = state.tickets(0, ticket);
+		int[] candidates = { state.location(0) };
+		int[] results = new int[2];
+		for (int i = 0; i < results.length; i++) {
+			ParanoidSearch search = new ParanoidSearch(context, locations, tickets, mrXTickets,
+					candidates, 0, StandardGame.ROUNDS.size() - 1, 6);
+			results[i] = search.search(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+			assertThat(search.completedDepth()).isEqualTo(6);
+		}
+		assertThat(results[0]).isEqualTo(results[1]);
+		int count = state.generateMoves(buffer, false);
+		assertThat(Arrays.copyOf(buffer, count)).contains(results[0]);
+	}
+
+	private static ScotlandYardModel createGame(ImmutableGraph<Integer, Transport> graph,
+			int seed, Player player) {
+		List<Integer> locations = StandardGame.generateDetectiveLocations(seed,
+				DETECTIVES.length);
+		List<PlayerConfiguration> detectives = new ArrayList<>();
+		for (int i = 0; i < DETECTIVES.length; i++)
+			detectives.add(new PlayerConfiguration.Builder(DETECTIVES[i])
+					.at(locations.get(i))
+					.with(StandardGame.generateDetectiveTickets())
+					.using(player)
+					.build());
+		PlayerConfiguration mrX = new PlayerConfiguration.Builder(Colour.Black)
+				.at(StandardGame.generateMrXLocation(seed))
+				.with(StandardGame.generateMrXTickets())
+				.using(player)
+				.build();
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph, mrX, detectives.get(0),
+				detectives.subList(1, detectives.size()).toArray(new PlayerConfiguration[0]));
+	}
+
+}
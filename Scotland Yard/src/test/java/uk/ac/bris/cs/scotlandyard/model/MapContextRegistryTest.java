@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.matrix.Reachability;
+import uk.ac.bris.cs.gamekit.matrix.ShortSquareMatrix;
+
+/**
+ * Tests for {@link MapContextRegistry} and {@link MapContext}
+ */
+public class MapContextRegistryTest {
+
+	private static final List<String> LINES = Arrays.asList(
+			"4 4", "1", "2", "3", "4",
+			"1 2 Taxi", "2 3 Bus", "3 4 Underground", "1 4 Boat");
+
+	@Test
+	public void testEqualGraphsShareContext() {
+		MapContextRegistry registry = new MapContextRegistry(null);
+		ImmutableGraph<Integer, Transport> first = ScotlandYardGraphReader.fromLines(LINES);
+		ImmutableGraph<Integer, Transport> second = ScotlandYardGraphReader.fromLines(LINES);
+		assertThat(registry.contextOf(first)).isSameAs(registry.contextOf(second));
+		assertThat(registry.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDifferentGraphsHaveDifferentContexts() {
+		MapContextRegistry registry = new MapContextRegistry(null);
+		MapContext first = registry.contextOf(ScotlandYardGraphReader.fromLines(LINES));
+		MapContext second = registry.contextOf(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("2 1", "1", "2", "1 2 Taxi")));
+		assertThat(first).isNotSameAs(second);
+		assertThat(first.contentHash()).isNotEqualTo(second.contentHash());
+	}
+
+	@Test
+	public void testDistancesIgnoreBoat() {
+		MapContext context = new MapContextRegistry(null)
+				.contextOf(ScotlandYardGraphReader.fromLines(LINES));
+		ShortSquareMatrix distances = context.get(MapContext.DISTANCES);
+		assertThat(distances.size()).isEqualTo(context.nodeCount());
+		int from = context.indexOf(1);
+		assertThat(distances.getShort(from, context.indexOf(1))).isEqualTo((short) 0);
+		assertThat(distances.getShort(from, context.indexOf(3))).isEqualTo((short) 2);
+		assertThat(distances.getShort(from, context.indexOf(4))).isEqualTo((short) 3);
+		assertThat(context.get(MapContext.DISTANCES)).isSameAs(distances);
+	}
+
+	@Test
+	public void testReachabilityWithinKMoves() {
+		MapContext context = new MapContextRegistry(null)
+				.contextOf(ScotlandYardGraphReader.fromLines(LINES));
+		Reachability reachability = context.get(MapContext.REACHABILITY);
+		int[] source = { context.indexOf(1) };
+		int land = MapContext.transportMask(Transport.Taxi, Transport.Bus,
+				Transport.Underground);
+		assertThat(values(context, reachability.reachable(source, 0, land))).containsExactly(1);
+		assertThat(values(context, reachability.reachable(source, 2, land)))
+				.containsExactlyInAnyOrder(1, 2, 3);
+		assertThat(values(context, reachability.reachable(source, 1, reachability.allLayers())))
+				.containsExactlyInAnyOrder(1, 2, 4);
+		assertThat(reachability.reachable(source, 2, land))
+				.isEqualTo(reachability.reachable(source, 2, land));
+	}
+
+	private static List<Integer> values(MapContext context, BitSet indices) {
+		return indices.stream().map(context::nodeValue).boxed().collect(Collectors.toList());
+	}
+
+	@Test
+	public void testDistancesArePersisted() throws Exception {
+		Path directory = Files.createTempDirectory("mapcache");
+		try {
+			ImmutableGraph<Integer, Transport> graph = ScotlandYardGraphReader.fromLines(LINES);
+			ShortSquareMatrix built = new MapContextRegistry(directory).contextOf(graph)
+					.get(MapContext.DISTANCES);
+			try (Stream<Path> files = Files.list(directory)) {
+				assertThat(files.collect(Collectors.toList())).hasSize(1);
+			}
+			ShortSquareMatrix loaded = new MapContextRegistry(directory).contextOf(graph)
+					.get(MapContext.DISTANCES);
+			assertThat(loaded).isNotSameAs(built).isEqualTo(built);
+		} finally {
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : files.collect(Collectors.toList()))
+					Files.delete(file);
+			}
+			Files.delete(directory);
+		}
+	}
+
+}
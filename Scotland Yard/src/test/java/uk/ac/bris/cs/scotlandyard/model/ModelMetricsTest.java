@@ -0,0 +1,123 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics.Counter;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics.HistogramSnapshot;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics.Phase;
+
+/**
+ * Checks the histograms of {@link ModelMetrics} and what
+ * {@link ScotlandYardModel} records into them
+ */
+public class ModelMetricsTest {
+
+	@Test
+	public void testBucketsArePowersOfTwo() {
+		assertThat(ModelMetrics.Histogram.bucket(0)).isEqualTo(0);
+		assertThat(ModelMetrics.Histogram.bucket(1)).isEqualTo(0);
+		assertThat(ModelMetrics.Histogram.bucket(2)).isEqualTo(1);
+		assertThat(ModelMetrics.Histogram.bucket(3)).isEqualTo(1);
+		assertThat(ModelMetrics.Histogram.bucket(1024)).isEqualTo(10);
+		assertThat(ModelMetrics.Histogram.bucket(Long.MAX_VALUE)).isEqualTo(62);
+	}
+
+	@Test
+	public void testQuantiles() {
+		ModelMetrics metrics = new ModelMetrics();
+		for (int i = 0; i < 99; i++)
+			metrics.record(Phase.ACCEPT, 100);
+		metrics.record(Phase.ACCEPT, 5000);
+		metrics.record(Phase.THINK, -1);
+		HistogramSnapshot accept = metrics.snapshot().histogram(Phase.ACCEPT);
+		assertThat(accept.count()).isEqualTo(100);
+		assertThat(accept.maxNanos()).isEqualTo(5000);
+		assertThat(accept.bucket(6)).isEqualTo(99);
+		assertThat(accept.meanNanos()).isEqualTo(149.0);
+		// 100 is in [64, 128)
+		assertThat(accept.quantileNanos(0.5)).isEqualTo(127);
+		assertThat(accept.quantileNanos(0.99)).isEqualTo(127);
+		assertThat(accept.quantileNanos(1)).isEqualTo(5000);
+		assertThat(metrics.snapshot().histogram(Phase.THINK).bucket(0)).isEqualTo(1);
+		assertThat(metrics.snapshot().histogram(Phase.GAME_OVER).quantileNanos(0.5))
+				.isZero();
+		assertThatThrownBy(() -> accept.quantileNanos(1.5))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testGameRecordsCountersAndPhases() throws IOException {
+		ModelMetrics metrics = new ModelMetrics();
+		ScotlandYardModel model = newGame(new RandomPlayer(new Random(42)));
+		model.setMetrics(metrics);
+		while (!model.isGameOver())
+			model.startRotate();
+
+		ModelMetrics.Snapshot snapshot = metrics.snapshot();
+		assertThat(snapshot.count(Counter.GENERATIONS)).isPositive();
+		assertThat(snapshot.count(Counter.MOVES_GENERATED))
+				.isGreaterThanOrEqualTo(snapshot.count(Counter.GENERATIONS));
+		assertThat(snapshot.histogram(Phase.AVAILABLE_MOVES).count())
+				.isEqualTo(snapshot.count(Counter.GENERATIONS));
+		// one generation per move asked for, not per check of the model
+		assertThat(snapshot.count(Counter.GENERATIONS))
+				.isEqualTo(snapshot.histogram(Phase.THINK).count());
+		assertThat(snapshot.histogram(Phase.THINK).count())
+				.isEqualTo(snapshot.histogram(Phase.ACCEPT).count());
+		assertThat(snapshot.histogram(Phase.ACCEPT).count()).isPositive();
+		assertThat(snapshot.histogram(Phase.GAME_OVER).count()).isPositive();
+		assertThat(snapshot.toString()).contains("GENERATIONS=", "ACCEPT={count=");
+	}
+
+	@Test
+	public void testNothingIsRecordedWithoutMetrics() throws IOException {
+		ModelMetrics metrics = new ModelMetrics();
+		ScotlandYardModel model = newGame(new RandomPlayer(new Random(42)));
+		model.setMetrics(metrics);
+		model.setMetrics(null);
+		while (!model.isGameOver())
+			model.startRotate();
+		assertThat(metrics.snapshot().count(Counter.GENERATIONS)).isZero();
+		assertThat(metrics.snapshot().histogram(Phase.ACCEPT).count()).isZero();
+	}
+
+	private static ScotlandYardModel newGame(Player player) throws IOException {
+		int[] locations = { 35, 26, 29, 50, 53, 91 };
+		Colour[] colours = Colour.values();
+		ArrayList<PlayerConfiguration> players = new ArrayList<>();
+		for (int i = 0; i < locations.length; i++) {
+			players.add(new PlayerConfiguration.Builder(colours[i]).using(player)
+					.with(colours[i].isMrX() ? StandardGame.generateMrXTickets()
+							: StandardGame.generateDetectiveTickets())
+					.at(locations[i]).build());
+		}
+		return new ScotlandYardModel(StandardGame.ROUNDS, StandardGame.standardGraph(),
+				players.get(0), players.get(1),
+				players.subList(2, players.size()).toArray(new PlayerConfiguration[0]));
+	}
+
+	private static final class RandomPlayer implements Player {
+
+		private final Random random;
+
+		RandomPlayer(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			callback.accept(new ArrayList<>(moves).get(random.nextInt(moves.size())));
+		}
+	}
+
+}
@@ -15,5 +15,7 @@ import org.junit.runners.Suite;
 		ModelRoundTest.class,
 		ModelPlayerTest.class,
 		ModelValidMoveTest.class,
-		ModelSpectatorTest.class })
+		ModelSpectatorTest.class,
+		PerftTest.class,
+		ModelMetricsTest.class })
 public class ModelTest {}
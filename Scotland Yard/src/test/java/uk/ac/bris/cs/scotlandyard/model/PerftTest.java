@@ -0,0 +1,165 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.White;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Yellow;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.ai.search.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
+
+/**
+ * Counts move sequences with {@link Perft} and checks them against the
+ * reference model and against {@link SearchState}
+ */
+public class PerftTest extends ModelTestBase {
+
+	private static final List<Boolean> ROUNDS = rounds(false, false, true, false, false,
+			false);
+
+	@Test
+	public void testShallowCounts() {
+		Perft perft = sixPlayers();
+		assertThat(perft.count(0).leaves()).isEqualTo(1);
+		Perft.Counts counts = perft.count(1);
+		assertThat(counts.leaves()).isEqualTo(perft.moves().size());
+		assertThat(counts.leaves()).isEqualTo(counts.tickets() + counts.secrets()
+				+ counts.doubles() + counts.passes());
+		assertThat(counts.doubles()).isPositive();
+		assertThat(counts.secrets()).isPositive();
+		assertThat(counts.passes()).isZero();
+	}
+
+	@Test
+	public void testParallelMatchesSingleThreaded() {
+		Perft perft = sixPlayers();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int depth = 0; depth <= 3; depth++)
+				assertThat(perft.count(depth, pool)).isEqualTo(perft.count(depth));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testMatchesReferenceModelAndSearchState() {
+		MapContext context = new MapContextRegistry(null).contextOf(defaultGraph());
+		Perft reference = Perft.of(new ModelFactories.ImperativeModelFactory(), ROUNDS,
+				defaultGraph(), configurations().get(0), detectives());
+		Perft perft = sixPlayers();
+		for (int seed = 0; seed < 6; seed++) {
+			// a random position further into the game, where rounds run out
+			Random random = new Random(seed);
+			SearchState state = initialState(context);
+			int[] buffer = new int[state.moveBufferSize()];
+			List<Move> history = new ArrayList<>();
+			for (int i = 0; i < 3 + seed * 4 && !state.isOver(); i++) {
+				int move = buffer[random.nextInt(state.generateMoves(buffer, true))];
+				history.add(state.toMove(move));
+				state.apply(move);
+			}
+			Perft.Counts counts = perft.after(history).count(3);
+			assertThat(counts).isEqualTo(reference.after(history).count(3))
+					.isEqualTo(count(state, 3));
+		}
+	}
+
+	@Test
+	public void testPassesAndGameOversAreCounted() {
+		PlayerConfiguration stuck = new Builder(Green).using(mocked()).with(noTickets())
+				.at(29).build();
+		Perft perft = Perft.of(this, ROUNDS, defaultGraph(), of(Black, 45), of(Blue, 94),
+				stuck);
+		Perft.Counts counts = perft.count(3);
+		// Green can only ever pass
+		assertThat(counts.passes()).isEqualTo(counts.leaves());
+
+		// Mr X next to a detective: moving into it is not possible, but the
+		// detective catching him ends the game
+		Perft caught = Perft.of(this, ROUNDS, defaultGraph(), of(Black, 45), of(Blue, 46));
+		assertThat(caught.count(3).gameOvers()).isPositive();
+	}
+
+	@Test
+	public void testIllegalHistoryThrows() {
+		assertThatThrownBy(() -> sixPlayers()
+				.after(Collections.singletonList(new TicketMove(Blue, Taxi, 1))))
+						.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private Perft sixPlayers() {
+		return Perft.of(this, ROUNDS, defaultGraph(), configurations().get(0), detectives());
+	}
+
+	private static List<PlayerConfiguration> configurations() {
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		configurations.add(of(Black, 45));
+		configurations.add(of(Blue, 94));
+		configurations.add(of(Green, 29));
+		configurations.add(of(Red, 50));
+		configurations.add(of(White, 53));
+		configurations.add(of(Yellow, 91));
+		return configurations;
+	}
+
+	private static PlayerConfiguration[] detectives() {
+		List<PlayerConfiguration> configurations = configurations();
+		return configurations.subList(1, configurations.size())
+				.toArray(new PlayerConfiguration[0]);
+	}
+
+	private static SearchState initialState(MapContext context) {
+		List<PlayerConfiguration> configurations = configurations();
+		Colour[] colours = new Colour[configurations.size()];
+		int[] locations = new int[colours.length];
+		int[][] tickets = new int[colours.length][Ticket.values().length];
+		for (int i = 0; i < colours.length; i++) {
+			colours[i] = configurations.get(i).colour;
+			locations[i] = configurations.get(i).location;
+			for (Ticket ticket : Ticket.values())
+				tickets[i][ticket.ordinal()] = configurations.get(i).tickets.get(ticket);
+		}
+		return new SearchState(context, ROUNDS, colours, locations, tickets, 0, 0, 0);
+	}
+
+	// the same count with the search engine's move generator
+	private static Perft.Counts count(SearchState state, int depth) {
+		Perft.Counts counts = new Perft.Counts();
+		count(state, depth, null, counts);
+		return counts;
+	}
+
+	private static void count(SearchState state, int depth, Move last, Perft.Counts counts) {
+		if (depth == 0) {
+			counts.leaf(last);
+			return;
+		}
+		if (state.isOver()) {
+			counts.gameOver();
+			return;
+		}
+		int[] buffer = new int[state.moveBufferSize()];
+		int size = state.generateMoves(buffer, true);
+		for (int i = 0; i < size; i++) {
+			SearchState next = new SearchState(state);
+			Move move = state.toMove(buffer[i]);
+			next.apply(buffer[i]);
+			count(next, depth - 1, move, counts);
+		}
+	}
+
+}
@@ -1,8 +1,15 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -56,4 +63,58 @@ public class ScotlandYardGraphReaderTest {
 		ScotlandYardGraphReader.fromLines(Arrays.asList("2 1", "1", "2", "Foo Bar Baz"));
 	}
 
+	private static ImmutableGraph<Integer, Transport> fromString(String content)
+			throws IOException {
+		return ScotlandYardGraphReader
+				.fromStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testStreamMatchesLines() throws Exception {
+		ImmutableGraph<Integer, Transport> expected = ScotlandYardGraphReader
+				.fromLines(Files.readAllLines(
+						Paths.get(getClass().getResource("/game_graph.txt").toURI())));
+		try (InputStream stream = getClass().getResourceAsStream("/game_graph.txt")) {
+			assertEquals(expected, ScotlandYardGraphReader.fromStream(stream));
+		}
+	}
+
+	@Test
+	public void testStreamValidFile() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = fromString("3 1\r\n1\r\n2\r\n3\r\n1 2 Boat");
+		assertEquals(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("3 1", "1", "2", "3", "1 2 Boat")), graph);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamEmptyInputShouldThrow() throws Exception {
+		fromString("");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamBadFirstLine() throws Exception {
+		fromString("Foo Bar Baz");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamBadNodeCount() throws Exception {
+		fromString("4 1\n1\n2\n3\n1 2 Boat\n");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamBadTransport() throws Exception {
+		fromString("2 1\n1\n2\n1 2 Car\n");
+	}
+
+	@Test
+	public void testStreamErrorReportsLine() throws Exception {
+		try {
+			fromString("2 1\n1\nFoo\n1 2 Taxi\n");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Expected integer at line 2\n\tFoo", e.getMessage());
+			return;
+		}
+		throw new AssertionError("Expected IllegalArgumentException");
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Tests for {@link ScotlandYardMapBundle}
+ */
+public class ScotlandYardMapBundleTest {
+
+	private static ImmutableGraph<Integer, Transport> gameGraph()
+			throws IOException, URISyntaxException {
+		return ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(ScotlandYardMapBundleTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static ScotlandYardMapBundle roundTrip(ImmutableGraph<Integer, Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions) throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ScotlandYardMapBundle.compile(graph, positions, stream);
+		return ScotlandYardMapBundle.wrap(ByteBuffer.wrap(stream.toByteArray()));
+	}
+
+	@Test
+	public void testRoundTripProducesEqualGraph() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = gameGraph();
+		ScotlandYardMapBundle bundle = roundTrip(graph, Collections.emptyMap());
+		assertThat(bundle.nodeCount()).isEqualTo(199);
+		assertThat(bundle.edgeCount()).isEqualTo(468);
+		assertThat(bundle.toGraph()).isEqualTo(graph);
+		assertThat(bundle.contentHash()).isEqualTo(ScotlandYardMapBundle.contentHash(graph));
+		assertThat(bundle.verify()).isTrue();
+	}
+
+	@Test
+	public void testAdjacencyMatchesGraph() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = gameGraph();
+		ScotlandYardMapBundle bundle = roundTrip(graph, Collections.emptyMap());
+		for (Node<Integer> node : graph.getNodes()) {
+			int index = bundle.indexOf(node.value());
+			assertThat(bundle.nodeValue(index)).isEqualTo(node.value());
+			int slot = bundle.adjacencyStart(index);
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+				assertThat(bundle.nodeValue(bundle.target(slot)))
+						.isEqualTo(edge.destination().value());
+				assertThat(bundle.transport(slot)).isEqualTo(edge.data());
+				slot++;
+			}
+			assertThat(slot).isEqualTo(bundle.adjacencyEnd(index));
+		}
+		assertThat(bundle.indexOf(0)).isEqualTo(-1);
+		assertThat(bundle.indexOf(200)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testPositionsRoundTrip() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = ScotlandYardGraphReader
+				.fromLines(Arrays.asList("3 1", "1", "2", "3", "1 2 Boat"));
+		Map<Integer, Entry<Integer, Integer>> positions = new HashMap<>();
+		positions.put(1, new SimpleImmutableEntry<>(10, 20));
+		positions.put(3, new SimpleImmutableEntry<>(30, 40));
+		positions.put(42, new SimpleImmutableEntry<>(0, 0));
+		ScotlandYardMapBundle bundle = roundTrip(graph, positions);
+		positions.remove(42);
+		assertThat(bundle.positionEntries()).isEqualTo(positions);
+		assertThat(bundle.x(bundle.indexOf(2))).isEqualTo(ScotlandYardMapBundle.NO_POSITION);
+	}
+
+	@Test
+	public void testLoadMemoryMappedFile() throws Exception {
+		ImmutableGraph<Integer, Transport> graph = gameGraph();
+		Path path = Files.createTempFile("map", ".bundle");
+		try {
+			ScotlandYardMapBundle.compile(graph, Collections.emptyMap(), path);
+			assertThat(ScotlandYardMapBundle.load(path).toGraph()).isEqualTo(graph);
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadMagicShouldThrow() throws Exception {
+		ScotlandYardMapBundle.wrap(ByteBuffer.allocate(64));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedBundleShouldThrow() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ScotlandYardMapBundle.compile(gameGraph(), Collections.emptyMap(), stream);
+		byte[] bytes = stream.toByteArray();
+		ScotlandYardMapBundle.wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownTransportShouldThrow() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ScotlandYardMapBundle.compile(gameGraph(), Collections.emptyMap(), stream);
+		byte[] bytes = stream.toByteArray();
+		// the last adjacency transport, directly before the coordinates
+		bytes[bytes.length - 2 * 199 * Integer.BYTES - 1] = (byte) Transport.values().length;
+		ScotlandYardMapBundle.wrap(ByteBuffer.wrap(bytes));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNodeIndexOutOfRangeShouldThrow() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ScotlandYardMapBundle.compile(gameGraph(), Collections.emptyMap(), stream);
+		ByteBuffer buffer = ByteBuffer.wrap(stream.toByteArray());
+		// the first edge source, after the header and three node sections
+		buffer.putInt(5 * Integer.BYTES + Long.BYTES + 3 * 199 * Integer.BYTES, 199);
+		ScotlandYardMapBundle.wrap(buffer);
+	}
+
+}
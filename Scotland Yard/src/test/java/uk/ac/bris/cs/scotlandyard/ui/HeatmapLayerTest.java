@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import uk.ac.bris.cs.scotlandyard.NodeCoordinates;
+
+/**
+ * Tests the values and the incremental redraw of {@link HeatmapLayer}
+ */
+public class HeatmapLayerTest {
+
+	private static final int SENTINEL = 0xFF123456;
+
+	// 100 x 100 heatmap pixels, discs 10 heatmap pixels wide
+	private HeatmapLayer layer;
+
+	@Before
+	public void setUp() {
+		layer = new HeatmapLayer(NodeCoordinates.of(new int[] { 1, 2 },
+				new double[] { 100, 300 }, new double[] { 100, 300 }), 400, 400, 4, 40);
+	}
+
+	@Test
+	public void testValuesAreClamped() {
+		layer.setValue(1, 2);
+		assertThat(layer.getValue(1)).isEqualTo(1);
+		layer.setValue(1, -1);
+		assertThat(layer.getValue(1)).isZero();
+		layer.setValue(1, Float.NaN);
+		assertThat(layer.getValue(1)).isZero();
+		layer.setValues(new float[] { 0, 0.5f, Float.POSITIVE_INFINITY });
+		assertThat(layer.getValues()).containsExactly(0, 0.5f, 1);
+		// nodes past the end are removed
+		layer.setValues(new float[] { 0, 0.5f });
+		assertThat(layer.getValues()).containsExactly(0, 0.5f, 0);
+		// nodes without coordinates are ignored
+		layer.setValue(3, 1);
+		assertThat(layer.getValue(3)).isZero();
+		layer.clear();
+		assertThat(layer.getValues()).containsOnly(0);
+	}
+
+	@Test
+	public void testDiscsAreDrawnAroundNodes() {
+		layer.setValues(new float[] { 0, 1, 0.5f });
+		PixelReader pixels = layer.heatmap().getPixelReader();
+		assertThat(alpha(pixels.getArgb(25, 25))).isEqualTo(255);
+		// the disc fades out towards its edge
+		assertThat(alpha(pixels.getArgb(32, 25))).isBetween(1, 254);
+		assertThat(pixels.getArgb(25, 36)).isZero();
+		assertThat(pixels.getArgb(50, 50)).isZero();
+		assertThat(alpha(pixels.getArgb(75, 75))).isPositive();
+
+		layer.clear();
+		assertThat(pixels.getArgb(25, 25)).isZero();
+		assertThat(pixels.getArgb(75, 75)).isZero();
+	}
+
+	@Test
+	public void testOnlyPixelsAroundChangedNodesAreRedrawn() {
+		mark(25, 25);
+		mark(50, 50);
+		mark(75, 75);
+		layer.setValue(1, 0.5f);
+		PixelReader pixels = layer.heatmap().getPixelReader();
+		assertThat(pixels.getArgb(25, 25)).isNotEqualTo(SENTINEL);
+		assertThat(pixels.getArgb(50, 50)).isEqualTo(SENTINEL);
+		assertThat(pixels.getArgb(75, 75)).isEqualTo(SENTINEL);
+
+		// an unchanged value redraws nothing
+		mark(25, 25);
+		layer.setValues(new float[] { 0, 0.5f });
+		assertThat(pixels.getArgb(25, 25)).isEqualTo(SENTINEL);
+
+		// the bounds of all changed nodes are redrawn at once
+		layer.setValues(new float[] { 0, 1, 1 });
+		assertThat(pixels.getArgb(25, 25)).isNotEqualTo(SENTINEL);
+		assertThat(pixels.getArgb(50, 50)).isZero();
+		assertThat(pixels.getArgb(75, 75)).isNotEqualTo(SENTINEL);
+	}
+
+	private void mark(int x, int y) {
+		((WritableImage) layer.heatmap()).getPixelWriter().setArgb(x, y, SENTINEL);
+	}
+
+	private static int alpha(int argb) {
+		return argb >>> 24;
+	}
+
+}